@@ -3,7 +3,6 @@ package com.mc1.dev.goapp;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.os.Environment;
 import android.support.annotation.NonNull;
@@ -19,17 +18,21 @@ import android.widget.RelativeLayout;
 import android.widget.TextView;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.FilenameFilter;
 import java.util.ArrayList;
 
 public class ActivityLoadGame extends AppCompatActivity {
     private static final String LOG_TAG = ActivityLoadGame.class.getSimpleName();
     private static final int PERMISSION_REQUEST_READ_EXTERNAL_STORAGE = 83;
 
-    private RunningGame rgs[];
+    private static final String GAME_INDEX_FILE = "sgf_index";
+    private static final String THUMBNAIL_DIRECTORY = "thumbnails";
+    // the edge length of the image in listview_layout
+    private static final int THUMBNAIL_SIZE_DIP = 122;
+
+    private GameListArrayAdapter adapter;
+    private GameListLoader loader;
+    private ThumbnailCache thumbnails;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -39,8 +42,6 @@ public class ActivityLoadGame extends AppCompatActivity {
         requestWindowFeature(Window.FEATURE_NO_TITLE);
         getWindow().setFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN, WindowManager.LayoutParams.FLAG_FULLSCREEN );
 
-        // TODO for every saved game, generate a board view
-        // get the bitmap of it and place it in the list
         setContentView(R.layout.activity_load_game);
 
         // background image
@@ -65,66 +66,53 @@ public class ActivityLoadGame extends AppCompatActivity {
                     PERMISSION_REQUEST_READ_EXTERNAL_STORAGE);
             Log.i(LOG_TAG, "Permission for writing to external storage requested");
         } else {
-            SGFParser parser = new SGFParser();
-            ArrayList<String> metaInfo = new ArrayList<>();
-            ArrayList<String> date = new ArrayList<>();
             final ListView listView = (ListView) findViewById(R.id.list_view);
+            int thumbnailSize = Math.round(THUMBNAIL_SIZE_DIP * getResources().getDisplayMetrics().density);
+            thumbnails = new ThumbnailCache(new File(getCacheDir(), THUMBNAIL_DIRECTORY), thumbnailSize);
+            adapter = new GameListArrayAdapter(this, new ArrayList<GameIndexEntry>(), thumbnails);
 
             if (Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED)) {
                 File directory = new File(Environment.getExternalStorageDirectory() + "/SGF_files/");
-                if (directory.exists()) {
-                    File files[] = directory.listFiles();
-                    // images[] is used for a future feature
-                    // see doc.pdf in doc directory
-                    Bitmap images[] = new Bitmap[files.length];
-                    this.rgs = new RunningGame[files.length];
-                    for (int i = 0; i < files.length; i++) {
-                        try {
-                            InputStream is = new FileInputStream(files[i]);
+                // only the sgf files are listed, not e.g. the temporary file of an interrupted save
+                File files[] = directory.listFiles(new FilenameFilter() {
+                    @Override
+                    public boolean accept(File dir, String name) {
+                        return name.endsWith(".sgf");
+                    }
+                });
+                if (files != null) {
+                    // the games are read in the background and added to the list one by one, only
+                    // new or changed files are parsed
+                    loader = new GameListLoader(new File(getCacheDir(), GAME_INDEX_FILE), new GameListLoader.Listener() {
+                        @Override
+                        public void onEntryLoaded(GameIndexEntry entry) {
+                            adapter.add(entry);
+                        }
 
-                            rgs[i] = parser.parse(is);
-                            metaInfo.add(rgs[i].getGameMetaInformation().getBlackName()
-                                    + " vs. " + rgs[i].getGameMetaInformation().getWhiteName());
-                            // iterate over the dates on which the current game is played.
-                            // the dates are displayed colon separated in the first row of the list view
-                            for (int j = 0; j < rgs[i].getGameMetaInformation().getDates().length; j++) {
-                                if (j == 0) {
-                                    date.add(rgs[i].getGameMetaInformation().getDates()[j]);
-                                } else {
-                                    date.add(" ; " + rgs[i].getGameMetaInformation().getDates()[j]);
-                                }
+                        @Override
+                        public void onFinished() {
+                            loader = null;
+                            // the thumbnails of deleted or changed files are removed from the disk
+                            ArrayList<GameIndexEntry> entries = new ArrayList<>();
+                            for (int i = 0; i < adapter.getCount(); i++) {
+                                entries.add(adapter.getItem(i));
                             }
-
-                            // the following lines are needed for displaying images of the final position
-                            // of the games stored. getBitmap() currently returns null. Therefore no
-                            // images are shown.
-                            BoardView board = new BoardView(this, null);
-                            board.setBoardSize(rgs[i].getGameMetaInformation().getBoardSize());
-                            rgs[i].updateMainTreeIndices();
-                            board.refresh(rgs[i].getMainTreeIndices(), rgs[i]);
-                            images[i] = board.getBitmap();
-                        } catch (FileNotFoundException e) {
-                            Log.i(LOG_TAG, "File not found. " + e.getMessage());
-                        } catch (IOException ee) {
-                            Log.i(LOG_TAG, "Parsing failed. " + ee.getMessage());
+                            thumbnails.prune(entries);
                         }
-                    }
-                    GameListArrayAdapter adapter = new GameListArrayAdapter(this, date, metaInfo, images);
-
-                    if (listView != null) {
-                        listView.setAdapter(adapter);
-                    }
-
+                    });
+                    loader.load(files);
                 }
             }
             if (listView != null) {
+                listView.setAdapter(adapter);
                 listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
                     @Override
                     public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
                         // if an item in the list is clicked the corresponding game is opened in
-                        // ActivityRecordGame
+                        // ActivityRecordGame. Only the file is passed, the game is parsed when it
+                        // is opened
                         Intent intent = new Intent(getApplicationContext(), ActivityRecordGame.class);
-                        intent.putExtra("game", rgs[position]);
+                        intent.putExtra("file", adapter.getItem(position).getPath());
                         startActivity(intent);
                     }
                 });
@@ -132,6 +120,20 @@ public class ActivityLoadGame extends AppCompatActivity {
         }
    }
 
+    @Override
+    protected void onDestroy() {
+        // the games which are still parsed are not needed anymore
+        if (loader != null) {
+            loader.cancel();
+            loader = null;
+        }
+        if (thumbnails != null) {
+            thumbnails.close();
+            thumbnails = null;
+        }
+        super.onDestroy();
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         switch (requestCode) {
@@ -162,66 +162,60 @@ public class ActivityPlay extends AppCompatActivity {
         // play the move with all attributes
         game.playMove(GameMetaInformation.actionType.PASS, position, /*TimeController.getInstance().swapTimePeriods(game.getCurrentNode().isBlacksMove()) */ 1, perLeft);
 
-        board.refresh(game.getMainTreeIndices(), game);
+        board.refresh(game.getBoardState());
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
 
         if (event.getAction() == MotionEvent.ACTION_DOWN) {
-            int counter = 0;
             float x = event.getX();
             float y = event.getY();
-            float lineOffset = board.getLineOffset();
-            float points[] = board.getPoints();
 
             LinearLayout turnedActionBar = (LinearLayout) findViewById(R.id.actionBarTurned);
             if (turnedActionBar != null) {
                 y = y - turnedActionBar.getHeight();
             }
 
-            for (int i = 0; i < board.getBoardSize(); i++) {
-                for (int j = 0; j < board.getBoardSize(); j++) {
-                    if (pointDistance(x,y, points[counter], points[counter+1]) <= lineOffset/2) {
-                        int position[] = {i,j}; // the index-position for the stone to be set
-                        switch (GameController.getInstance().checkAction(GameMetaInformation.actionType.MOVE, game, position, !game.getCurrentNode().isBlacksMove() )) {
-                            case OCCUPIED   :
-                                return super.onTouchEvent(event);
-                            case SUICIDE    :
-                                dialogBuilder.setMessage(R.string.dialog_suicide_content).setTitle(R.string.dialog_suicide_title);
-                                dialogBuilder.show();
-                                return super.onTouchEvent(event);
-                            case END:
-                                endGame();
-                                return super.onTouchEvent(event);
-                        }
-
-
-                        // time
-                        byte perLeft;
-                        if (game.getCurrentNode().isBlacksMove()) {
-                            perLeft = TimeController.getInstance().getBlackPeriodsLeft();
-                        } else {
-                            perLeft = TimeController.getInstance().getWhitePeriodsLeft();
-                        }
-
-
-                        // play the move with all attributes
-                        game.playMove(GameMetaInformation.actionType.MOVE, position, TimeController.getInstance().swapTimePeriods(game.getCurrentNode().isBlacksMove()), perLeft);
-
-                        // remove all prisoners from the board
-                        // call twice to check for white and black stones, if they are prisoner
-                        GameController.getInstance().calcPrisoners(game, game.getCurrentNode().isBlacksMove());
-                        GameController.getInstance().calcPrisoners(game, !game.getCurrentNode().isBlacksMove());
-                        updatePrisonerViews();
-
-                        board.refresh(game.getMainTreeIndices(), game);
+            int position[] = board.getIntersection(x, y); // the index-position for the stone to be set
+            if (position != null) {
+                switch (GameController.getInstance().checkAction(GameMetaInformation.actionType.MOVE, game, position, !game.getCurrentNode().isBlacksMove() )) {
+                    case OCCUPIED   :
                         return super.onTouchEvent(event);
-                    }
-                    else {
-                        counter = counter + 2;
-                    }
+                    case SUICIDE    :
+                        dialogBuilder.setMessage(R.string.dialog_suicide_content).setTitle(R.string.dialog_suicide_title);
+                        dialogBuilder.show();
+                        return super.onTouchEvent(event);
+                    case KO         :
+                        dialogBuilder.setMessage(R.string.dialog_ko_content).setTitle(R.string.dialog_ko_title);
+                        dialogBuilder.show();
+                        return super.onTouchEvent(event);
+                    case END:
+                        endGame();
+                        return super.onTouchEvent(event);
+                }
+
+
+                // time
+                byte perLeft;
+                if (game.getCurrentNode().isBlacksMove()) {
+                    perLeft = TimeController.getInstance().getBlackPeriodsLeft();
+                } else {
+                    perLeft = TimeController.getInstance().getWhitePeriodsLeft();
                 }
+
+
+                // play the move with all attributes
+                game.playMove(GameMetaInformation.actionType.MOVE, position, TimeController.getInstance().swapTimePeriods(game.getCurrentNode().isBlacksMove()), perLeft);
+
+                // remove all prisoners from the board
+                // call twice to check for white and black stones, if they are prisoner
+                GameController.getInstance().calcPrisoners(game, game.getCurrentNode().isBlacksMove());
+                GameController.getInstance().calcPrisoners(game, !game.getCurrentNode().isBlacksMove());
+                updatePrisonerViews();
+
+                board.refresh(game.getBoardState());
+                return super.onTouchEvent(event);
             }
             return super.onTouchEvent(event);
         }
@@ -278,7 +272,4 @@ public class ActivityPlay extends AppCompatActivity {
         dialogBuilder.show();
     }
 
-    private float pointDistance(float x1, float y1, float x2, float y2) {
-        return (float) Math.sqrt(Math.pow((x1 - x2),2) + Math.pow((y1 - y2),2) );
-    }
 }
@@ -23,13 +23,11 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 
 public class ActivityPlayOnline extends AppCompatActivity implements NetworkController.OnMoveResponseListener {
     private static final String LOG_TAG = ActivityPlayOnline.class.getSimpleName();
+    private static final String STATE_DEACTIVATE_EVERYTHING = "deactivateEverything";
 
     private RunningGame game;
     private BoardView board;
@@ -38,9 +36,12 @@ public class ActivityPlayOnline extends AppCompatActivity implements NetworkCont
     private Button resignButton;
     private AlertDialog.Builder dialogBuilder;
     private NetworkController nc;
-    private SGFParser sgfParser = new SGFParser();
+    private OnlineGameSession session;
     private boolean opponentIsBlack;
     private boolean moveWasPlayed;
+    // the moves on the board, which have not been submitted yet. The game is shared with the
+    // OnlineGameSession, so they are taken back when the activity is left, see onDestroy()
+    private int unsubmittedMoves;
     private boolean deactivateEverything;
 
     @Override
@@ -57,6 +58,12 @@ public class ActivityPlayOnline extends AppCompatActivity implements NetworkCont
         moveWasPlayed = false;
         deactivateEverything = false;
 
+        // the game is stored as onlineGame.sgf, the moves since it was written are kept in a
+        // journal in the private storage of the app
+        session = OnlineGameSession.getInstance();
+        session.init(new File(Environment.getExternalStorageDirectory() + "/SGF_files/onlineGame.sgf"),
+                new File(getFilesDir(), "onlineGame.journal"));
+
         final Intent intent = getIntent();
 
         // if type == move_played : game already exists
@@ -100,29 +107,34 @@ public class ActivityPlayOnline extends AppCompatActivity implements NetworkCont
                         gmi.setBlackName(nickname);
                         gmi.setBlackRank(rankString);
                     }
-                    game = new RunningGame(gmi);
-
-                    try {
-                        sgfParser.save(game, "onlineGame");
-                    } catch (IOException ioe) {
-                        Log.i(LOG_TAG, "Parsing failed: " + ioe.getMessage());
+                    if (savedInstanceState != null && session.hasGame()) {
+                        // the activity is created again, e.g. after a rotation of the screen, so
+                        // the game has already been started and may contain moves
+                        try {
+                            game = session.getGame();
+                        } catch (IOException ioe) {
+                            // a game in memory is not read from the files
+                            Log.e(LOG_TAG, "Could not get game. " + ioe.getMessage());
+                        }
+                        deactivateEverything = savedInstanceState.getBoolean(STATE_DEACTIVATE_EVERYTHING);
+                    } else {
+                        game = new RunningGame(gmi);
+                        session.start(game);
                     }
                     Log.i(LOG_TAG, "Success!! ");
                     break;
 
                 case "move_played":
-                    if (Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED)) {
-                        File savedFile = new File(Environment.getExternalStorageDirectory()
-                                + "/SGF_files/onlineGame.sgf");
-                        if (savedFile.canWrite()) {
-                            try {
-                                InputStream is = new FileInputStream(savedFile);
-                                game = sgfParser.parse(is);
-                            } catch (FileNotFoundException finfe) {
-                                Log.i(LOG_TAG, "File not found: " + finfe.getMessage());
-                            } catch (IOException ioe) {
-                                Log.i(LOG_TAG, "Parsing failed: " + ioe.getMessage());
+                    // the game is usually still in memory, the files are only read after the
+                    // app has been restarted
+                    if (session.hasGame() || Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED)) {
+                        try {
+                            game = session.getGame();
+                            if (game == null) {
+                                Log.i(LOG_TAG, "File not found: onlineGame.sgf");
                             }
+                        } catch (IOException ioe) {
+                            Log.i(LOG_TAG, "Parsing failed: " + ioe.getMessage());
                         }
                     } else {
                         Log.e(LOG_TAG, "External storage not mounted.");
@@ -209,28 +221,30 @@ public class ActivityPlayOnline extends AppCompatActivity implements NetworkCont
     }
 
     @Override
-    public void onMoveResponse(MoveNode mn) {
-        if (Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED)) {
-            File savedFile = new File(Environment.getExternalStorageDirectory()
-                    + "/SGF_files/onlineGame.sgf");
-            if (savedFile.canWrite()) {
-                try {
-                    InputStream is = new FileInputStream(savedFile);
-
-                    game = sgfParser.parse(is);
-                    game.addIndexToMainTree(game.getCurrentNode().addChild(mn));
-                    sgfParser.save(game, "onlineGame");
-
-                    board.refresh(game.getMainTreeIndices(), game);
-                } catch (FileNotFoundException finfe) {
-                    Log.i(LOG_TAG, "File not found: " + finfe.getMessage());
-                } catch (IOException ioe) {
-                    Log.i(LOG_TAG, "Parsing failed: " + ioe.getMessage());
-                }
-            }
-        } else {
-            Log.e(LOG_TAG, "External storage not mounted.");
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        // whether the player has already submitted the move is kept, when the activity is
+        // created again
+        outState.putBoolean(STATE_DEACTIVATE_EVERYTHING, deactivateEverything);
+    }
+
+    @Override
+    protected void onDestroy() {
+        // only submitted moves are stored, so the game in memory needs to be the same as the
+        // stored one, when the next activity takes it from the session
+        for (; unsubmittedMoves > 0; unsubmittedMoves--) {
+            game.takeLastMoveBack();
         }
+        super.onDestroy();
+    }
+
+    @Override
+    public void onMoveResponse(MoveNode mn) {
+        // the game in memory is up to date, only the new move needs to be stored, which is done
+        // in the background
+        game.addIndexToMainTree(game.getCurrentNode().addChild(mn));
+        board.refresh(game.getBoardState());
+        session.append();
         submitMoveButton.setEnabled(false);
     }
 
@@ -247,6 +261,8 @@ public class ActivityPlayOnline extends AppCompatActivity implements NetworkCont
         dialogBuilder.setMessage(content).setTitle(title);
         dialogBuilder.show();
         moveWasPlayed = true;
+        // writes the whole game to onlineGame.sgf, which is done when the game has ended
+        session.compact();
     }
 
     // ----------------------------------------------------------------------
@@ -267,11 +283,8 @@ public class ActivityPlayOnline extends AppCompatActivity implements NetworkCont
             Log.e(LOG_TAG, je.getMessage());
         }
         nc.postMove(token, toDeliver.toString());
-        try {
-            sgfParser.save(game, "onlineGame");
-        } catch (IOException ioe) {
-            Log.i(LOG_TAG, "Parsing failed: " + ioe.getMessage());
-        }
+        session.append();
+        unsubmittedMoves = 0;
         submitMoveButton.setEnabled(false);
         deactivateEverything = true;
         passButton.setEnabled(false);
@@ -299,8 +312,9 @@ public class ActivityPlayOnline extends AppCompatActivity implements NetworkCont
 
         // play the move with all attributes except for the timing
         game.playMove(GameMetaInformation.actionType.PASS, position);
+        unsubmittedMoves++;
 
-        board.refresh(game.getMainTreeIndices(), game);
+        board.refresh(game.getBoardState());
         submitMoveButton.setEnabled(true);
         moveWasPlayed = true;
     }
@@ -310,47 +324,46 @@ public class ActivityPlayOnline extends AppCompatActivity implements NetworkCont
         if (deactivateEverything) Toast.makeText(this.getApplicationContext(),
                 R.string.not_your_turn, Toast.LENGTH_SHORT).show();
         if (event.getAction() == MotionEvent.ACTION_DOWN && !deactivateEverything) {
-            int counter = 0;
             float x = event.getX();
             float y = event.getY();
-            float lineOffset = board.getLineOffset();
-            float points[] = board.getPoints();
-
-            for (int i = 0; i < board.getBoardSize(); i++) {
-                for (int j = 0; j < board.getBoardSize(); j++) {
-                    if (pointDistance(x, y, points[counter], points[counter + 1]) <= lineOffset / 2) {
-                        int position[] = {i, j}; // the index-position for the stone to be set
-                        switch (GameController.getInstance().checkAction(GameMetaInformation.actionType.MOVE, game, position, !game.getCurrentNode().isBlacksMove())) {
-                            case OCCUPIED:
-                                return super.onTouchEvent(event);
-                            case SUICIDE:
-                                dialogBuilder.setMessage(R.string.dialog_suicide_content).setTitle(R.string.dialog_suicide_title);
-                                dialogBuilder.show();
-                                return super.onTouchEvent(event);
-                            case END:
-                                endGame();
-                                return super.onTouchEvent(event);
-                        }
 
-                        if (moveWasPlayed) {
-                            game.takeLastMoveBack();
-                        }
-                        game.playMove(GameMetaInformation.actionType.MOVE, position);
-                        moveWasPlayed = true;
-
-                        // remove all prisoners from the board
-                        // call twice to check for white and black stones, if they are prisoner
-                        GameController.getInstance().calcPrisoners(game, game.getCurrentNode().isBlacksMove());
-                        GameController.getInstance().calcPrisoners(game, !game.getCurrentNode().isBlacksMove());
-                        updatePrisonerViews();
-
-                        board.refresh(game.getMainTreeIndices(), game);
-                        submitMoveButton.setEnabled(true);
+            int position[] = board.getIntersection(x, y); // the index-position for the stone to be set
+            if (position != null) {
+                switch (GameController.getInstance().checkAction(GameMetaInformation.actionType.MOVE, game, position, !game.getCurrentNode().isBlacksMove())) {
+                    case OCCUPIED:
                         return super.onTouchEvent(event);
-                    } else {
-                        counter = counter + 2;
+                    case SUICIDE:
+                        dialogBuilder.setMessage(R.string.dialog_suicide_content).setTitle(R.string.dialog_suicide_title);
+                        dialogBuilder.show();
+                        return super.onTouchEvent(event);
+                    case KO:
+                        dialogBuilder.setMessage(R.string.dialog_ko_content).setTitle(R.string.dialog_ko_title);
+                        dialogBuilder.show();
+                        return super.onTouchEvent(event);
+                    case END:
+                        endGame();
+                        return super.onTouchEvent(event);
+                }
+
+                if (moveWasPlayed) {
+                    game.takeLastMoveBack();
+                    if (unsubmittedMoves > 0) {
+                        unsubmittedMoves--;
                     }
                 }
+                game.playMove(GameMetaInformation.actionType.MOVE, position);
+                unsubmittedMoves++;
+                moveWasPlayed = true;
+
+                // remove all prisoners from the board
+                // call twice to check for white and black stones, if they are prisoner
+                GameController.getInstance().calcPrisoners(game, game.getCurrentNode().isBlacksMove());
+                GameController.getInstance().calcPrisoners(game, !game.getCurrentNode().isBlacksMove());
+                updatePrisonerViews();
+
+                board.refresh(game.getBoardState());
+                submitMoveButton.setEnabled(true);
+                return super.onTouchEvent(event);
             }
             return super.onTouchEvent(event);
         }
@@ -374,6 +387,8 @@ public class ActivityPlayOnline extends AppCompatActivity implements NetworkCont
     }
 
     private void endGame() {
+        // writes the whole game to onlineGame.sgf, which is done when the game has ended
+        session.compact();
 
         // int[] points = GameController.calculateGameEnding();
         boolean blackWon = true;
@@ -401,8 +416,4 @@ public class ActivityPlayOnline extends AppCompatActivity implements NetworkCont
         dialogBuilder.show();
     }
 
-    private float pointDistance(float x1, float y1, float x2, float y2) {
-        return (float) Math.sqrt(Math.pow((x1 - x2), 2) + Math.pow((y1 - y2), 2));
-    }
-
 }
@@ -17,7 +17,11 @@ import android.view.WindowManager;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.InvalidParameterException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -31,7 +35,7 @@ public class ActivityRecordGame extends AppCompatActivity {
     // the main tree indices for the current game to be recorded
     private ArrayList<Integer> indices;
     // represents the current game state, when the user for example pressed the backwards button
-    private ArrayList<Integer> currentGameState;
+    private TreeCursor currentGameState;
     private RunningGame game;
     private BoardView board;
     private AlertDialog.Builder dialogBuilder;
@@ -47,12 +51,21 @@ public class ActivityRecordGame extends AppCompatActivity {
         setContentView(R.layout.activity_record_game);
 
         Intent intent = getIntent();
-        game = (RunningGame) intent.getSerializableExtra("game");
+        // games from the list of saved games are passed as a file and only parsed now
+        if (intent.hasExtra("file")) {
+            game = loadGame(intent.getStringExtra("file"));
+            if (game == null) {
+                finish();
+                return;
+            }
+        } else {
+            game = (RunningGame) intent.getSerializableExtra("game");
+        }
         // if the game is a new game the main tree indices are automatically stored
         // otherwise this is equivalent to assigning an empty ArrayList to indices.
         indices = game.getMainTreeIndices();
 
-        currentGameState = new ArrayList<>();
+        currentGameState = game.getCursor();
 
         board = (BoardView) findViewById(R.id.recordBoardView);
         board.setBoardSize(game.getGameMetaInformation().getBoardSize());
@@ -65,49 +78,74 @@ public class ActivityRecordGame extends AppCompatActivity {
         });
     }
 
+    // ----------------------------------------------------------------------
+    // function loadGame(String path)
+    //
+    // parses the sgf file with the given path and sets the main tree-branch
+    // to its first variation, so the game can be stepped through. Returns
+    // null, if the file could not be read
+    // ----------------------------------------------------------------------
+    private RunningGame loadGame(String path) {
+        InputStream is = null;
+        try {
+            is = new FileInputStream(path);
+            RunningGame game = new SGFParser().parse(is);
+            game.updateMainTreeIndices();
+            return game;
+        } catch (FileNotFoundException e) {
+            Log.i(LOG_TAG, "File not found. " + e.getMessage());
+        } catch (IOException | InvalidParameterException ee) {
+            Log.i(LOG_TAG, "Parsing failed. " + ee.getMessage());
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Could not close input stream. " + e.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent event) {
 
         if (event.getAction() == MotionEvent.ACTION_DOWN) {
-            int counter = 0;
             float x = event.getX();
             float y = event.getY();
-            float lineOffset = board.getLineOffset();
-            float points[] = board.getPoints();
 
             LinearLayout turnedActionBar = (LinearLayout) findViewById(R.id.actionBarTurned);
             if (turnedActionBar != null) {
                 y = y - turnedActionBar.getHeight();
             }
 
-            for (int i = 0; i < board.getBoardSize(); i++) {
-                for (int j = 0; j < board.getBoardSize(); j++) {
-                    if (pointDistance(x, y, points[counter], points[counter + 1]) <= lineOffset / 2) {
-                        int position[] = {i, j}; // the index-position for the stone to be set
-                        switch (GameController.getInstance().checkAction(GameMetaInformation.actionType.MOVE, game, position, !game.getCurrentNode().isBlacksMove())) {
-                            case OCCUPIED:
-                                return super.onTouchEvent(event);
-                            case SUICIDE:
-                                dialogBuilder.setMessage(R.string.dialog_suicide_content).setTitle(R.string.dialog_suicide_title);
-                                dialogBuilder.show();
-                                return super.onTouchEvent(event);
-                        }
-
-                        // play the move with all attributes
-                        indices.add(game.recordMove(GameMetaInformation.actionType.MOVE, position, indices));
-
-                        // remove all prisoners from the board
-                        // ! currentNode now has the color of the move played, e.g. a black stone was set, check if
-                        // there are prisoners on white side
-                        GameController.getInstance().calcPrisoners(game, game.getCurrentNode().isBlacksMove());
-                        updatePrisonerViews();
-
-                        board.refresh(indices, game);
+            int position[] = board.getIntersection(x, y); // the index-position for the stone to be set
+            if (position != null) {
+                switch (GameController.getInstance().checkAction(GameMetaInformation.actionType.MOVE, game, position, !game.getCurrentNode().isBlacksMove())) {
+                    case OCCUPIED:
+                        return super.onTouchEvent(event);
+                    case SUICIDE:
+                        dialogBuilder.setMessage(R.string.dialog_suicide_content).setTitle(R.string.dialog_suicide_title);
+                        dialogBuilder.show();
+                        return super.onTouchEvent(event);
+                    case KO:
+                        dialogBuilder.setMessage(R.string.dialog_ko_content).setTitle(R.string.dialog_ko_title);
+                        dialogBuilder.show();
                         return super.onTouchEvent(event);
-                    } else {
-                        counter = counter + 2;
-                    }
                 }
+
+                // play the move with all attributes
+                game.playMove(GameMetaInformation.actionType.MOVE, position);
+
+                // remove all prisoners from the board
+                // ! currentNode now has the color of the move played, e.g. a black stone was set, check if
+                // there are prisoners on white side
+                GameController.getInstance().calcPrisoners(game, game.getCurrentNode().isBlacksMove());
+                updatePrisonerViews(game.getBoardState());
+
+                board.refresh(game.getBoardState());
+                return super.onTouchEvent(event);
             }
             return super.onTouchEvent(event);
         }
@@ -115,7 +153,11 @@ public class ActivityRecordGame extends AppCompatActivity {
         return super.onTouchEvent(event);
     }
 
-    private void updatePrisonerViews() {
+    // ----------------------------------------------------------------------
+    // shows the number of stones captured by each color up to the position
+    // of the given board state
+    // ----------------------------------------------------------------------
+    private void updatePrisonerViews(BoardState boardState) {
 
         TextView blackPrisonerView = (TextView) findViewById(R.id.blackPrisonersView);
         TextView whitePrisonerView = (TextView) findViewById(R.id.whitePrisonersView);
@@ -123,8 +165,8 @@ public class ActivityRecordGame extends AppCompatActivity {
         if (blackPrisonerView != null && whitePrisonerView != null) {
             String labelBlack = getResources().getString(R.string.label_prisoners_black);
             String labelWhite = getResources().getString(R.string.label_prisoners_white);
-            String blackContent = labelBlack + "\r\n" + game.getGameMetaInformation().getBlackPrisoners();
-            String whiteContent = labelWhite + "\r\n" + game.getGameMetaInformation().getWhitePrisoners();
+            String blackContent = labelBlack + "\r\n" + boardState.getPrisoners(true);
+            String whiteContent = labelWhite + "\r\n" + boardState.getPrisoners(false);
 
             blackPrisonerView.setText(blackContent);
             whitePrisonerView.setText(whiteContent);
@@ -202,7 +244,7 @@ public class ActivityRecordGame extends AppCompatActivity {
         // play the move with all attributes
         game.playMove(GameMetaInformation.actionType.PASS, position, /*TimeController.getInstance().swapTimePeriods(game.getCurrentNode().isBlacksMove()) */ 1, perLeft);
 
-        board.refresh(game.getMainTreeIndices(), game);
+        board.refresh(game.getBoardState());
     }
 
     // ----------------------------------------------------------------------
@@ -210,14 +252,15 @@ public class ActivityRecordGame extends AppCompatActivity {
     // gets called on button click
     // ----------------------------------------------------------------------
     public void skipForward(View view) {
-        if (indices.size() > currentGameState.size()) {
-            currentGameState.add(0);
+        if (indices.size() > currentGameState.getDepth()) {
+            currentGameState.toChild(0);
         }
 
-        GameController.getInstance().calcPrisoners(game, game.getCurrentNode().isBlacksMove());
-        updatePrisonerViews();
+        // the board state only applies the move stepped over
+        BoardState boardState = game.getBoardState(currentGameState.getNode());
+        updatePrisonerViews(boardState);
 
-        board.refresh(currentGameState, game);
+        board.refresh(boardState);
     }
 
     // ----------------------------------------------------------------------
@@ -225,17 +268,13 @@ public class ActivityRecordGame extends AppCompatActivity {
     // gets called on button click
     // ----------------------------------------------------------------------
     public void skipBackward(View view) {
-        if (currentGameState.size() > 0) {
-            currentGameState.remove(currentGameState.size() - 1);
-        }
+        currentGameState.toParent();
 
-        GameController.getInstance().calcPrisoners(game, game.getCurrentNode().isBlacksMove());
-        updatePrisonerViews();
+        // the board state only reverts the journaled changes of the move stepped back
+        BoardState boardState = game.getBoardState(currentGameState.getNode());
+        updatePrisonerViews(boardState);
 
-        board.refresh(currentGameState, game);
+        board.refresh(boardState);
     }
 
-    private float pointDistance(float x1, float y1, float x2, float y2) {
-        return (float) Math.sqrt(Math.pow((x1 - x2), 2) + Math.pow((y1 - y2), 2));
-    }
 }
@@ -0,0 +1,103 @@
+package com.mc1.dev.goapp;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+// ----------------------------------------------------------------------
+// class AtomicFileWriter
+//
+// replaces a file in a way, that it either contains the old or the
+// complete new content, even if the app crashes while writing. The new
+// content is written to a temporary file in the same directory, which is
+// synced to the disk and then renamed to the target file.
+//
+// usage:
+//      Writer writer = atomicFileWriter.startWriter();
+//      try {
+//          ... write ...
+//          atomicFileWriter.commit();
+//      } finally {
+//          atomicFileWriter.abort();   // does nothing after commit()
+//      }
+// ----------------------------------------------------------------------
+public class AtomicFileWriter {
+    private static final String LOG_TAG = AtomicFileWriter.class.getSimpleName();
+    public static final String TEMP_SUFFIX = ".tmp";
+
+    private final File target;
+    private final File temp;
+    private FileOutputStream stream;
+    // the buffered stream or writer handed out, which is flushed before syncing
+    private Flushable buffer;
+    private Closeable closeable;
+
+    public AtomicFileWriter(File target) {
+        this.target = target;
+        this.temp = new File(target.getParentFile(), target.getName() + TEMP_SUFFIX);
+    }
+
+    // opens the temporary file for text, the target file is not touched until commit()
+    public Writer startWriter() throws IOException {
+        stream = new FileOutputStream(temp);
+        Writer writer = new OutputStreamWriter(new BufferedOutputStream(stream), "UTF-8");
+        buffer = writer;
+        closeable = writer;
+        return writer;
+    }
+
+    // opens the temporary file for binary data, the target file is not touched until commit()
+    public OutputStream startStream() throws IOException {
+        stream = new FileOutputStream(temp);
+        OutputStream os = new BufferedOutputStream(stream);
+        buffer = os;
+        closeable = os;
+        return os;
+    }
+
+    // ----------------------------------------------------------------------
+    // function commit()
+    //
+    // syncs the written content to the disk and replaces the target file
+    // with it
+    // ----------------------------------------------------------------------
+    public void commit() throws IOException {
+        buffer.flush();
+        stream.getFD().sync();
+        closeable.close();
+        closeable = null;
+        stream = null;
+        if (!temp.renameTo(target)) {
+            throw new IOException("Could not replace " + target.getAbsolutePath());
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function abort()
+    //
+    // closes and removes the temporary file, if commit() has not been
+    // called or failed. The target file keeps its old content
+    // ----------------------------------------------------------------------
+    public void abort() {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Could not close temporary file. " + e.getMessage());
+            }
+            closeable = null;
+            stream = null;
+        }
+        if (temp.exists() && !temp.delete()) {
+            Log.e(LOG_TAG, "Could not delete temporary file " + temp.getAbsolutePath());
+        }
+    }
+}
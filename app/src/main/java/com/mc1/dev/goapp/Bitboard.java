@@ -0,0 +1,243 @@
+package com.mc1.dev.goapp;
+
+import java.util.Arrays;
+
+// ----------------------------------------------------------------------
+// class Bitboard
+//
+// a set of intersections packed into a long array, one bit per point.
+// The bits use the same order as BoardState (index = x * boardSize + y),
+// so moving to a neighbour in y direction is a shift by one bit and in x
+// direction a shift by boardSize bits. This allows neighbour, liberty and
+// flood operations to work on 64 points at once.
+//
+// all operations except copy() and neighbours() alter the bitboard itself
+// and return it, so they can be chained without allocating
+// ----------------------------------------------------------------------
+public class Bitboard {
+    private final int boardSize;
+    private final long[] words;
+    // holds the original bits while shifting
+    private final long[] scratch;
+
+    // the points of the first and last row in y direction and the whole
+    // board. They are used to cut off bits shifted across the border
+    private final long[] firstRowMask;
+    private final long[] lastRowMask;
+    private final long[] boardMask;
+
+    public Bitboard(int boardSize) {
+        this.boardSize = boardSize;
+        int points = boardSize * boardSize;
+        this.words = new long[(points + 63) / 64];
+        this.scratch = new long[words.length];
+        this.firstRowMask = new long[words.length];
+        this.lastRowMask = new long[words.length];
+        this.boardMask = new long[words.length];
+
+        for (int index = 0; index < points; index++) {
+            boardMask[index >>> 6] |= 1L << index;
+            if (index % boardSize == 0) {
+                firstRowMask[index >>> 6] |= 1L << index;
+            }
+            if (index % boardSize == boardSize - 1) {
+                lastRowMask[index >>> 6] |= 1L << index;
+            }
+        }
+    }
+
+    private Bitboard(Bitboard other) {
+        this.boardSize = other.boardSize;
+        this.words = other.words.clone();
+        this.scratch = new long[words.length];
+        this.firstRowMask = other.firstRowMask;
+        this.lastRowMask = other.lastRowMask;
+        this.boardMask = other.boardMask;
+    }
+
+    public Bitboard copy() {
+        return new Bitboard(this);
+    }
+
+    public boolean get(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public Bitboard set(int index) {
+        words[index >>> 6] |= 1L << index;
+        return this;
+    }
+
+    public Bitboard clear(int index) {
+        words[index >>> 6] &= ~(1L << index);
+        return this;
+    }
+
+    public Bitboard clear() {
+        Arrays.fill(words, 0);
+        return this;
+    }
+
+    public Bitboard and(Bitboard other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+        return this;
+    }
+
+    public Bitboard or(Bitboard other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+        return this;
+    }
+
+    public Bitboard andNot(Bitboard other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+        return this;
+    }
+
+    // ----------------------------------------------------------------------
+    // function invert()
+    //
+    // flips all points of the board, bits outside the board stay unset
+    // ----------------------------------------------------------------------
+    public Bitboard invert() {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = ~words[i] & boardMask[i];
+        }
+        return this;
+    }
+
+    // ----------------------------------------------------------------------
+    // function expand()
+    //
+    // adds all points adjacent to a set point, the set points themselves
+    // are kept
+    // ----------------------------------------------------------------------
+    public Bitboard expand() {
+        System.arraycopy(words, 0, scratch, 0, words.length);
+
+        for (int i = 0; i < words.length; i++) {
+            // y + 1 and y - 1 must not wrap into the neighbouring column
+            words[i] |= shiftedUp(scratch, i, 1) & ~firstRowMask[i];
+            words[i] |= shiftedDown(scratch, i, 1) & ~lastRowMask[i];
+            // x + 1 and x - 1
+            words[i] |= shiftedUp(scratch, i, boardSize);
+            words[i] |= shiftedDown(scratch, i, boardSize);
+            words[i] &= boardMask[i];
+        }
+        return this;
+    }
+
+    // ----------------------------------------------------------------------
+    // function neighbours()
+    //
+    // returns the points adjacent to the set points, which are not set
+    // themselves. Applied to a chain these are its liberties and opposing
+    // stones
+    // ----------------------------------------------------------------------
+    public Bitboard neighbours() {
+        return copy().expand().andNot(this);
+    }
+
+    // ----------------------------------------------------------------------
+    // function floodFill()
+    //
+    // grows the set points into all connected points of the given area
+    // until nothing changes anymore
+    // ----------------------------------------------------------------------
+    public Bitboard floodFill(Bitboard area) {
+        long[] previous = new long[words.length];
+        and(area);
+        while (!Arrays.equals(previous, words)) {
+            System.arraycopy(words, 0, previous, 0, words.length);
+            expand().and(area);
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean intersects(Bitboard other) {
+        for (int i = 0; i < words.length; i++) {
+            if ((words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int count() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // ----------------------------------------------------------------------
+    // function nextSetBit()
+    //
+    // returns the index of the first set point at or after the given index
+    // or -1, if there is none
+    // ----------------------------------------------------------------------
+    public int nextSetBit(int from) {
+        int wordIndex = from >>> 6;
+        if (wordIndex >= words.length) {
+            return -1;
+        }
+        long word = words[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return wordIndex * 64 + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Bitboard && boardSize == ((Bitboard) other).boardSize
+                && Arrays.equals(words, ((Bitboard) other).words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    // returns word i of the given bits shifted by distance (< 64) towards higher indices
+    private static long shiftedUp(long[] bits, int i, int distance) {
+        long result = bits[i] << distance;
+        if (i > 0) {
+            result |= bits[i - 1] >>> (64 - distance);
+        }
+        return result;
+    }
+
+    // returns word i of the given bits shifted by distance (< 64) towards lower indices
+    private static long shiftedDown(long[] bits, int i, int distance) {
+        long result = bits[i] >>> distance;
+        if (i < bits.length - 1) {
+            result |= bits[i + 1] << (64 - distance);
+        }
+        return result;
+    }
+}
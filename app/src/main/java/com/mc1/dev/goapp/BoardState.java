@@ -0,0 +1,695 @@
+package com.mc1.dev.goapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+// ----------------------------------------------------------------------
+// class BoardState
+//
+// incrementally maintained representation of the stones currently lying
+// on the board. The state always represents exactly one MoveNode of the
+// game tree and is moved along the tree by applying single moves, so rule
+// checks only have to look at the chains next to the regarded point
+// instead of replaying the whole game.
+//
+// intersections are addressed by index = x * boardSize + y, which is the
+// same order BoardView uses for its points
+//
+// connected stones are kept as chains in a union-find structure. Every
+// chain root stores the size and the pseudo liberties of the chain, which
+// count each adjacency of a stone to an empty point. A chain is captured
+// exactly when its pseudo liberty count drops to zero.
+//
+// the position is identified by a 64 bit zobrist hash, which is updated
+// with every stone placed or removed. The hashes of all positions on the
+// path from the root to the current node are kept to detect repetitions.
+//
+// every change to the board arrays is written to a journal, so stepping
+// back to the parent node only reverts the changes of the last move
+// instead of replaying the game from the root.
+// ----------------------------------------------------------------------
+public class BoardState {
+    public static final byte EMPTY = 0;
+    public static final byte BLACK = 1;
+    public static final byte WHITE = 2;
+
+    // the sgf format allows boards of up to 52 x 52 points, see
+    // SGFParser.toCoordinate(). The zobrist keys below are generated from a
+    // fixed seed, so equal positions share equal hashes throughout the app
+    public static final int MAX_BOARD_SIZE = 52;
+    private static final long[] ZOBRIST_BLACK = new long[MAX_BOARD_SIZE * MAX_BOARD_SIZE];
+    private static final long[] ZOBRIST_WHITE = new long[MAX_BOARD_SIZE * MAX_BOARD_SIZE];
+
+    // identifiers of the journaled arrays
+    private static final int TRAIL_STONES = 0;
+    private static final int TRAIL_PARENT = 1;
+    private static final int TRAIL_SIZE = 2;
+    private static final int TRAIL_LIBERTIES = 3;
+    private static final int TRAIL_NEXT = 4;
+
+    static {
+        Random random = new Random(0x5eed60a9L);
+        for (int i = 0; i < ZOBRIST_BLACK.length; i++) {
+            ZOBRIST_BLACK[i] = random.nextLong();
+            ZOBRIST_WHITE[i] = random.nextLong();
+        }
+    }
+
+    private final int boardSize;
+    private final byte[] stones;
+    // the indices of the four adjacent points for every intersection, -1
+    // marks a side which lies outside of the board
+    private final int[][] adjacency;
+    // the move node that placed the stone currently lying on an intersection
+    private final MoveNode[] owners;
+    // the move node this state represents
+    private MoveNode node;
+    private final MoveNode rootNode;
+    // the stones removed by the move that led to the current state
+    private ArrayList<MoveNode> lastCaptured;
+
+    // union-find parent of every stone, a stone pointing to itself is the
+    // root of its chain
+    private final int[] chainParent;
+    // number of stones and pseudo liberties, only valid for chain roots
+    private final int[] chainSize;
+    private final int[] chainLiberties;
+    // links the stones of a chain to a circular list, so a chain can be
+    // removed without searching the board for its stones
+    private final int[] nextStone;
+
+    // the roots of the chains captured by a regarded move, at most one per side
+    private final int[] capturedRoots = new int[4];
+
+    // the same stones as bitboards for operations on whole areas
+    private final Bitboard blackStones;
+    private final Bitboard whiteStones;
+
+    private long hash;
+    // the number of times each position hash occurs on the path from the root
+    private HashMap<Long, Integer> pathHashes;
+
+    // stones captured by black and white on the path from the root
+    private int blackPrisoners;
+    private int whitePrisoners;
+
+    // one entry for every move applied on the path from the root
+    private final ArrayList<JournalEntry> journal;
+    // the overwritten array values, encoded as array * points + index and
+    // the previous value
+    private int[] trailEntries;
+    private int[] trailValues;
+    private int trailSize;
+
+    public BoardState(int boardSize, MoveNode rootNode) {
+        this.boardSize = boardSize;
+        this.stones = new byte[boardSize * boardSize];
+        this.owners = new MoveNode[boardSize * boardSize];
+        this.adjacency = new int[boardSize * boardSize][];
+        this.chainParent = new int[boardSize * boardSize];
+        this.chainSize = new int[boardSize * boardSize];
+        this.chainLiberties = new int[boardSize * boardSize];
+        this.nextStone = new int[boardSize * boardSize];
+        this.blackStones = new Bitboard(boardSize);
+        this.whiteStones = new Bitboard(boardSize);
+        this.node = rootNode;
+        this.rootNode = rootNode;
+        this.lastCaptured = new ArrayList<>();
+        this.hash = 0;
+        this.pathHashes = new HashMap<>();
+        this.pathHashes.put(hash, 1);
+        this.blackPrisoners = 0;
+        this.whitePrisoners = 0;
+        this.journal = new ArrayList<>();
+        this.trailEntries = new int[64];
+        this.trailValues = new int[64];
+        this.trailSize = 0;
+
+        for (int x = 0; x < boardSize; x++) {
+            for (int y = 0; y < boardSize; y++) {
+                int index = x * boardSize + y;
+                adjacency[index] = new int[]{
+                        x > 0 ? index - boardSize : -1,
+                        x < boardSize - 1 ? index + boardSize : -1,
+                        y > 0 ? index - 1 : -1,
+                        y < boardSize - 1 ? index + 1 : -1
+                };
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function moveTo()
+    //
+    // brings the board to the position after the given move node. Moves
+    // are taken back until the current path and the path of the target
+    // meet, then the remaining moves of the target path are applied. A
+    // single step to the parent or a child costs only that move.
+    // ----------------------------------------------------------------------
+    public void moveTo(MoveNode target) {
+        if (target == node) {
+            return;
+        }
+        if (target.getParent() == node) {
+            apply(target);
+            return;
+        }
+        if (!journal.isEmpty() && node.getParent() == target) {
+            undo();
+            return;
+        }
+
+        // the path from the target up to the root, excluding the root
+        ArrayList<MoveNode> path = new ArrayList<>();
+        for (MoveNode walker = target; walker.getParent() != null; walker = walker.getParent()) {
+            path.add(walker);
+        }
+
+        int common = 0;
+        while (common < journal.size() && common < path.size()
+                && journal.get(common).move == path.get(path.size() - 1 - common)) {
+            common++;
+        }
+        while (journal.size() > common) {
+            undo();
+        }
+        for (int i = path.size() - 1 - common; i >= 0; i--) {
+            apply(path.get(i));
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function apply()
+    //
+    // places the stone of the given move and removes all neighbouring
+    // chains, which are left without liberties
+    // ----------------------------------------------------------------------
+    private void apply(MoveNode move) {
+        lastCaptured = new ArrayList<>();
+        journal.add(new JournalEntry(move, trailSize, hash, lastCaptured));
+        node = move;
+
+        if (move.getActionType() != GameMetaInformation.actionType.MOVE || !isOnBoard(move.getPosition())) {
+            addPathHash(hash);
+            return;
+        }
+
+        int index = toIndex(move.getPosition());
+        byte color = move.isBlacksMove() ? BLACK : WHITE;
+        placeStone(index, color);
+        owners[index] = move;
+
+        for (int neighbour : adjacency[index]) {
+            if (neighbour >= 0 && stones[neighbour] == opponent(color) && chainLiberties[findChain(neighbour)] == 0) {
+                removeChain(findChain(neighbour));
+            }
+        }
+
+        // a suicide can only be encountered in imported games, the own chain is removed then
+        if (chainLiberties[findChain(index)] == 0) {
+            removeChain(findChain(index));
+        }
+        addPathHash(hash);
+
+        for (MoveNode captured : lastCaptured) {
+            if (captured.isBlacksMove()) {
+                whitePrisoners++;
+            } else {
+                blackPrisoners++;
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function undo()
+    //
+    // takes back the last applied move by reverting all journaled changes
+    // and putting the captured stones back on the board
+    // ----------------------------------------------------------------------
+    private void undo() {
+        JournalEntry entry = journal.remove(journal.size() - 1);
+
+        removePathHash(hash);
+        hash = entry.previousHash;
+
+        while (trailSize > entry.trailMark) {
+            trailSize--;
+            int array = trailEntries[trailSize] / stones.length;
+            int index = trailEntries[trailSize] % stones.length;
+            int value = trailValues[trailSize];
+            switch (array) {
+                case TRAIL_STONES:
+                    if (stones[index] != EMPTY) {
+                        stonesOf(stones[index]).clear(index);
+                    }
+                    if (value != EMPTY) {
+                        stonesOf((byte) value).set(index);
+                    }
+                    stones[index] = (byte) value;
+                    break;
+                case TRAIL_PARENT:
+                    chainParent[index] = value;
+                    break;
+                case TRAIL_SIZE:
+                    chainSize[index] = value;
+                    break;
+                case TRAIL_LIBERTIES:
+                    chainLiberties[index] = value;
+                    break;
+                case TRAIL_NEXT:
+                    nextStone[index] = value;
+                    break;
+            }
+        }
+
+        for (MoveNode captured : entry.captured) {
+            owners[toIndex(captured.getPosition())] = captured;
+            if (captured.isBlacksMove()) {
+                whitePrisoners--;
+            } else {
+                blackPrisoners--;
+            }
+        }
+        if (entry.move.getActionType() == GameMetaInformation.actionType.MOVE && isOnBoard(entry.move.getPosition())) {
+            owners[toIndex(entry.move.getPosition())] = null;
+        }
+
+        if (journal.isEmpty()) {
+            node = rootNode;
+            lastCaptured = new ArrayList<>();
+        } else {
+            node = journal.get(journal.size() - 1).move;
+            lastCaptured = journal.get(journal.size() - 1).captured;
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function isOccupied()
+    //
+    // returns true, if there is a stone on the given position
+    // ----------------------------------------------------------------------
+    public boolean isOccupied(int[] position) {
+        return stones[toIndex(position)] != EMPTY;
+    }
+
+    // ----------------------------------------------------------------------
+    // function isSuicide()
+    //
+    // returns true, if a stone of the given color placed on the given
+    // position would be left without liberties after resolving captures
+    // ----------------------------------------------------------------------
+    public boolean isSuicide(int[] position, boolean isBlack) {
+        return isSuicide(toIndex(position), isBlack ? BLACK : WHITE);
+    }
+
+    private boolean isSuicide(int index, byte color) {
+        for (int neighbour : adjacency[index]) {
+            if (neighbour < 0) {
+                continue;
+            }
+            if (stones[neighbour] == EMPTY) {
+                return false;
+            }
+
+            // the pseudo liberties provided by the regarded point are the ones
+            // lost by the neighbouring chain if the stone is placed
+            int chain = findChain(neighbour);
+            int shared = countAdjacencies(index, chain);
+            if (stones[neighbour] == color && chainLiberties[chain] > shared) {
+                return false; // the own chain keeps a liberty elsewhere
+            }
+            if (stones[neighbour] != color && chainLiberties[chain] == shared) {
+                return false; // the opposing chain is captured
+            }
+        }
+        return true;
+    }
+
+    // ----------------------------------------------------------------------
+    // function isRepetition()
+    //
+    // returns true, if a stone of the given color placed on the given
+    // position would recreate a position of the current path (positional
+    // superko). This includes the simple ko
+    // ----------------------------------------------------------------------
+    public boolean isRepetition(int[] position, boolean isBlack) {
+        return isRepetition(toIndex(position), isBlack ? BLACK : WHITE);
+    }
+
+    private boolean isRepetition(int index, byte color) {
+        long resulting = hash ^ zobristKey(index, color);
+
+        // every captured chain is only removed from the hash once, even if
+        // it touches the regarded point from several sides
+        int capturedCount = 0;
+
+        for (int neighbour : adjacency[index]) {
+            if (neighbour < 0 || stones[neighbour] != opponent(color)) {
+                continue;
+            }
+            int chain = findChain(neighbour);
+            boolean known = false;
+            for (int i = 0; i < capturedCount; i++) {
+                known |= capturedRoots[i] == chain;
+            }
+            if (!known && chainLiberties[chain] == countAdjacencies(index, chain)) {
+                capturedRoots[capturedCount++] = chain;
+                int stone = chain;
+                do {
+                    resulting ^= zobristKey(stone, stones[stone]);
+                    stone = nextStone[stone];
+                } while (stone != chain);
+            }
+        }
+
+        return pathHashes.containsKey(resulting);
+    }
+
+    // ----------------------------------------------------------------------
+    // function getLegalMoves()
+    //
+    // returns all points, on which a stone of the given color may be
+    // placed. Occupied points are excluded by the empty mask, every empty
+    // point is then checked for suicide and ko in constant time
+    // ----------------------------------------------------------------------
+    public Bitboard getLegalMoves(boolean isBlack) {
+        byte color = isBlack ? BLACK : WHITE;
+        Bitboard legal = getEmpty();
+
+        for (int index = legal.nextSetBit(0); index >= 0; index = legal.nextSetBit(index + 1)) {
+            if (isSuicide(index, color) || isRepetition(index, color)) {
+                legal.clear(index);
+            }
+        }
+        return legal;
+    }
+
+    // ----------------------------------------------------------------------
+    // function placeStone()
+    //
+    // puts a single stone on the board, updates the liberties of the
+    // adjacent chains and merges it with the neighbouring friendly chains
+    // ----------------------------------------------------------------------
+    private void placeStone(int index, byte color) {
+        setStone(index, color);
+        hash ^= zobristKey(index, color);
+        write(TRAIL_PARENT, chainParent, index, index);
+        write(TRAIL_SIZE, chainSize, index, 1);
+        write(TRAIL_NEXT, nextStone, index, index);
+
+        int liberties = 0;
+        for (int neighbour : adjacency[index]) {
+            if (neighbour < 0) {
+                continue;
+            }
+            if (stones[neighbour] == EMPTY) {
+                liberties++;
+            } else {
+                int chain = findChain(neighbour);
+                write(TRAIL_LIBERTIES, chainLiberties, chain, chainLiberties[chain] - 1);
+            }
+        }
+        write(TRAIL_LIBERTIES, chainLiberties, index, liberties);
+        for (int neighbour : adjacency[index]) {
+            if (neighbour >= 0 && stones[neighbour] == color) {
+                unionChains(index, neighbour);
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function removeChain()
+    //
+    // removes all stones of the chain with the given root from the board
+    // and remembers their move nodes as captured
+    // ----------------------------------------------------------------------
+    private void removeChain(int root) {
+        int stone = root;
+        do {
+            hash ^= zobristKey(stone, stones[stone]);
+            setStone(stone, EMPTY);
+            lastCaptured.add(owners[stone]);
+            owners[stone] = null;
+            stone = nextStone[stone];
+        } while (stone != root);
+
+        // every removed stone gives a liberty back to the chains around it
+        do {
+            for (int neighbour : adjacency[stone]) {
+                if (neighbour >= 0 && stones[neighbour] != EMPTY) {
+                    int chain = findChain(neighbour);
+                    write(TRAIL_LIBERTIES, chainLiberties, chain, chainLiberties[chain] + 1);
+                }
+            }
+            stone = nextStone[stone];
+        } while (stone != root);
+    }
+
+    // ----------------------------------------------------------------------
+    // function findChain()
+    //
+    // returns the root of the chain containing the given stone without
+    // changing anything, so queries like isSuicide() do not add to the
+    // journal. The smaller chain is always attached to the larger one,
+    // which keeps the paths logarithmic even without compression
+    // ----------------------------------------------------------------------
+    private int findChain(int index) {
+        while (chainParent[index] != index) {
+            index = chainParent[index];
+        }
+        return index;
+    }
+
+    // ----------------------------------------------------------------------
+    // function compressChain()
+    //
+    // like findChain(), but halves the path on the way. Is only used while
+    // a move is applied, where the writes are journaled with the move and
+    // reverted with it. A stone, whose parent already is the root, is not
+    // written
+    // ----------------------------------------------------------------------
+    private int compressChain(int index) {
+        while (chainParent[index] != index) {
+            int grandparent = chainParent[chainParent[index]];
+            if (chainParent[index] != grandparent) {
+                write(TRAIL_PARENT, chainParent, index, grandparent);
+            }
+            index = chainParent[index];
+        }
+        return index;
+    }
+
+    // ----------------------------------------------------------------------
+    // function unionChains()
+    //
+    // merges the chains of both stones, the smaller chain is attached to
+    // the larger one
+    // ----------------------------------------------------------------------
+    private void unionChains(int first, int second) {
+        int rootFirst = compressChain(first);
+        int rootSecond = compressChain(second);
+        if (rootFirst == rootSecond) {
+            return;
+        }
+        if (chainSize[rootFirst] < chainSize[rootSecond]) {
+            int tmp = rootFirst;
+            rootFirst = rootSecond;
+            rootSecond = tmp;
+        }
+
+        write(TRAIL_PARENT, chainParent, rootSecond, rootFirst);
+        write(TRAIL_SIZE, chainSize, rootFirst, chainSize[rootFirst] + chainSize[rootSecond]);
+        write(TRAIL_LIBERTIES, chainLiberties, rootFirst, chainLiberties[rootFirst] + chainLiberties[rootSecond]);
+
+        // splice both circular stone lists into one
+        int tmp = nextStone[rootFirst];
+        write(TRAIL_NEXT, nextStone, rootFirst, nextStone[rootSecond]);
+        write(TRAIL_NEXT, nextStone, rootSecond, tmp);
+    }
+
+    // ----------------------------------------------------------------------
+    // function countAdjacencies()
+    //
+    // returns how many of the points adjacent to the given index belong to
+    // the chain with the given root
+    // ----------------------------------------------------------------------
+    private int countAdjacencies(int index, int root) {
+        int count = 0;
+        for (int neighbour : adjacency[index]) {
+            if (neighbour >= 0 && stones[neighbour] != EMPTY && findChain(neighbour) == root) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // ----------------------------------------------------------------------
+    // function write()
+    //
+    // sets a value of one of the chain arrays and remembers the previous
+    // value in the journal
+    // ----------------------------------------------------------------------
+    private void write(int array, int[] values, int index, int value) {
+        record(array, index, values[index]);
+        values[index] = value;
+    }
+
+    private void setStone(int index, byte color) {
+        record(TRAIL_STONES, index, stones[index]);
+        if (stones[index] != EMPTY) {
+            stonesOf(stones[index]).clear(index);
+        }
+        if (color != EMPTY) {
+            stonesOf(color).set(index);
+        }
+        stones[index] = color;
+    }
+
+    private void record(int array, int index, int previousValue) {
+        if (trailSize == trailEntries.length) {
+            trailEntries = Arrays.copyOf(trailEntries, trailSize * 2);
+            trailValues = Arrays.copyOf(trailValues, trailSize * 2);
+        }
+        trailEntries[trailSize] = array * stones.length + index;
+        trailValues[trailSize] = previousValue;
+        trailSize++;
+    }
+
+    private void addPathHash(long positionHash) {
+        Integer count = pathHashes.get(positionHash);
+        pathHashes.put(positionHash, count == null ? 1 : count + 1);
+    }
+
+    private void removePathHash(long positionHash) {
+        Integer count = pathHashes.get(positionHash);
+        if (count == null || count <= 1) {
+            pathHashes.remove(positionHash);
+        } else {
+            pathHashes.put(positionHash, count - 1);
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function zobristKey()
+    //
+    // returns the random key of a stone of the given color on the given
+    // index. The keys are taken from the table of the largest board, so
+    // they do not depend on the size of the board
+    // ----------------------------------------------------------------------
+    private long zobristKey(int index, byte color) {
+        int tableIndex = (index / boardSize) * MAX_BOARD_SIZE + index % boardSize;
+        return color == BLACK ? ZOBRIST_BLACK[tableIndex] : ZOBRIST_WHITE[tableIndex];
+    }
+
+    private Bitboard stonesOf(byte color) {
+        return color == BLACK ? blackStones : whiteStones;
+    }
+
+    private static byte opponent(byte color) {
+        return color == BLACK ? WHITE : BLACK;
+    }
+
+    private boolean isOnBoard(int[] position) {
+        return position != null && position[0] >= 0 && position[0] < boardSize
+                && position[1] >= 0 && position[1] < boardSize;
+    }
+
+    private int toIndex(int[] position) {
+        return position[0] * boardSize + position[1];
+    }
+
+    // ----------------------------------------------------------------------
+    // function getLastCaptured()
+    //
+    // returns the move nodes of all stones, which were captured by the move
+    // leading to the current state
+    // ----------------------------------------------------------------------
+    public ArrayList<MoveNode> getLastCaptured() {
+        return lastCaptured;
+    }
+
+    public byte getStone(int x, int y) {
+        return stones[x * boardSize + y];
+    }
+
+    // ----------------------------------------------------------------------
+    // function copyPosition()
+    //
+    // returns a copy of the stones on the board in the order
+    // x * boardSize + y, each being EMPTY, BLACK or WHITE
+    // ----------------------------------------------------------------------
+    public byte[] copyPosition() {
+        return stones.clone();
+    }
+
+    // ----------------------------------------------------------------------
+    // function getTerritory()
+    //
+    // returns the empty points, which are only bordered by stones of the
+    // given color. Dead stones are not removed beforehand
+    // ----------------------------------------------------------------------
+    public Bitboard getTerritory(boolean isBlack) {
+        Bitboard empty = getEmpty();
+        Bitboard reachedByOwn = stonesOf(isBlack ? BLACK : WHITE).neighbours().floodFill(empty);
+        Bitboard reachedByOpponent = stonesOf(isBlack ? WHITE : BLACK).neighbours().floodFill(empty);
+        return reachedByOwn.andNot(reachedByOpponent);
+    }
+
+    public Bitboard getStones(boolean isBlack) {
+        return stonesOf(isBlack ? BLACK : WHITE).copy();
+    }
+
+    public Bitboard getEmpty() {
+        return blackStones.copy().or(whiteStones).invert();
+    }
+
+    // ----------------------------------------------------------------------
+    // function getHash()
+    //
+    // returns the zobrist hash of the current position. Equal positions on
+    // boards of equal size always have the same hash, so it can be used as
+    // a key for caches
+    // ----------------------------------------------------------------------
+    public long getHash() {
+        return hash;
+    }
+
+    // ----------------------------------------------------------------------
+    // function getPrisoners()
+    //
+    // returns the number of stones the given color has captured on the
+    // path from the root to the current node
+    // ----------------------------------------------------------------------
+    public int getPrisoners(boolean isBlack) {
+        return isBlack ? blackPrisoners : whitePrisoners;
+    }
+
+    public MoveNode getNode() {
+        return node;
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    // ----------------------------------------------------------------------
+    // class JournalEntry
+    //
+    // the information needed to take back a single applied move
+    // ----------------------------------------------------------------------
+    private static class JournalEntry {
+        private final MoveNode move;
+        private final int trailMark;
+        private final long previousHash;
+        private final ArrayList<MoveNode> captured;
+
+        JournalEntry(MoveNode move, int trailMark, long previousHash, ArrayList<MoveNode> captured) {
+            this.move = move;
+            this.trailMark = trailMark;
+            this.previousHash = previousHash;
+            this.captured = captured;
+        }
+    }
+}
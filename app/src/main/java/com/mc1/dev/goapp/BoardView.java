@@ -5,20 +5,30 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.support.v4.content.ContextCompat;
 import android.util.AttributeSet;
 import android.view.View;
 
-import java.util.ArrayList;
-
 public class BoardView extends View {
 
     private int boardSize;
     private float lineOffset;
     private float points[];   // the actual coordinates of the points on the screen, given as x/y
-    private int setPoints[]; // the indices of the points, that are filled with stones, given as x-index / y-index / color
+    private float upperOffset; // the y coordinate of the upper row of points
     private Paint linePaint;
+    // the background and the lines of the board, which are only drawn again if the size of the
+    // view or the board changes
+    private Bitmap boardLayer;
+    // the stones shown on the board, given as index x*boardSize+y and BoardState.EMPTY / BLACK /
+    // WHITE. It is a copy of the board state passed to refresh(), so it never changes while drawn
+    private byte shownStones[];
+    private final Rect clipBounds = new Rect();
+    // the images of the stones scaled to the current size, see drawStones()
+    private Bitmap blackStone;
+    private Bitmap whiteStone;
+    private int stoneSpriteDimension = -1;
 
     public BoardView(Context context, AttributeSet attributeSet) {
         super(context, attributeSet);
@@ -29,9 +39,7 @@ public class BoardView extends View {
         linePaint.setStrokeWidth(3);
         this.setWillNotDraw(false);
 
-        this.setDrawingCacheEnabled(true);
-
-        setPoints = null;
+        shownStones = null;
     }
 
     // ----------------------------------------------------------------------
@@ -43,17 +51,39 @@ public class BoardView extends View {
     // ----------------------------------------------------------------------
     public void onDraw(Canvas canvas) {
         super.onDraw(canvas);
+        if (boardLayer == null) {
+            drawBoardLayer();
+        }
+        canvas.drawBitmap(boardLayer, 0, 0, null);
+
+        if (shownStones != null) {
+            drawStones(canvas);
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        clearBoardLayer();
+    }
+
+    // ----------------------------------------------------------------------
+    // function drawBoardLayer()
+    //
+    // calculates the points of the board for the current size of the view
+    // and draws the background and the lines into the boardLayer bitmap,
+    // which is then copied into every frame
+    // ----------------------------------------------------------------------
+    private void drawBoardLayer() {
         int width = getWidth();
         float middle = getHeight()/2;
         calcLineOffset(width); // the width of the screen is the size of the board, as it is quadratic
 
-        // set the bitmap, on which is drawn the same as on the canvas
-        //canvas.setBitmap(canvasBitmap);
+        boardLayer = Bitmap.createBitmap(Math.max(width, 1), Math.max(getHeight(), 1), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(boardLayer);
 
         // draw background
-        //Resources res = getResources();
         Drawable backgroundImg = ContextCompat.getDrawable(this.getContext(), R.drawable.dull_boardbackground);
-        //Drawable backgroundImg = res.getDrawable(R.drawable.dull_boardbackground);
         if (backgroundImg != null) {
             backgroundImg.setBounds(0, Math.round(middle - ((boardSize + 1) * lineOffset)/2)-3, width, Math.round(middle + ((boardSize-1) * lineOffset)/2)+3);
             backgroundImg.draw(canvas);
@@ -62,44 +92,45 @@ public class BoardView extends View {
         // initialize board with lines
         constructPoints((float)(getHeight() - (middle + (0.5*width))));
         drawLines(canvas);
+    }
 
-        if (setPoints != null) {
-            drawStones(canvas);
+    private void clearBoardLayer() {
+        if (boardLayer != null) {
+            boardLayer.recycle();
+            boardLayer = null;
         }
     }
 
     // ----------------------------------------------------------------------
     // function refresh()
     //
-    // reads the data of the given RunningGame, according to the given tree
-    // index list and paints itself accordingly
-    // ----------------------------------------------------------------------
-    public void refresh(ArrayList<Integer> treeIndices, RunningGame game) {
-        setPoints = new int[treeIndices.size()*3]; // x/y index values of the points
-        int counter = 0;
-        ArrayList<Integer> tempList = new ArrayList<>();
-
-        for (int i = 0; i < treeIndices.size(); i++) {
-            tempList.add(treeIndices.get(i));
-            MoveNode move        = game.getSpecificNode(tempList);
-            if (move.isPrisoner() /* || move.getActionType == pass */) {
-                int[] position = {boardSize, boardSize};
-                move.setPosition(position);
-            }
-
-            setPoints[counter] = move.getPosition()[0]; // x-index
-            setPoints[counter + 1] = move.getPosition()[1]; // y-index
-
-            if (move.isBlacksMove()) {
-                setPoints[counter + 2] = 1;
-            }
-            else {
-                setPoints[counter + 2] = 0;
+    // shows the stones of the given board state. The view keeps its own
+    // copy of the position, which is compared with the one shown before, so
+    // only the changed intersections, e.g. the new stone and the captured
+    // ones, are invalidated. The whole view is invalidated, if the board
+    // has not been drawn yet or its size has changed
+    // ----------------------------------------------------------------------
+    public void refresh(BoardState boardState) {
+        byte stones[] = boardState.copyPosition();
+
+        if (shownStones == null || shownStones.length != stones.length || points == null || points.length != stones.length*2) {
+            this.invalidate();
+        } else {
+            for (int i = 0; i < stones.length; i++) {
+                if (stones[i] != shownStones[i]) {
+                    invalidateIntersection(i);
+                }
             }
-            counter = counter+3;
         }
+        shownStones = stones;
+    }
 
-        this.invalidate();
+    // invalidates the square around the intersection with the index x*boardSize+y
+    private void invalidateIntersection(int index) {
+        float x = points[index*2];
+        float y = points[index*2+1];
+        float half = lineOffset/2;
+        this.invalidate((int) Math.floor(x - half), (int) Math.floor(y - half), (int) Math.ceil(x + half), (int) Math.ceil(y + half));
     }
 
     // ----------------------------------------------------------------------
@@ -118,6 +149,7 @@ public class BoardView extends View {
     // stores coordinates in the points member as x1,y1,x2,y2....
     // ----------------------------------------------------------------------
     private void constructPoints(float upperOffset) {
+        this.upperOffset = upperOffset;
         points = new float[boardSize*boardSize*2];
         int count = 0;
 
@@ -159,52 +191,104 @@ public class BoardView extends View {
     // draws the images of the stones into the board
     // ----------------------------------------------------------------------
     private void drawStones(Canvas canvas) {
+        // after a move only the changed intersections are redrawn, the other stones are skipped
+        boolean isClipped = canvas.getClipBounds(clipBounds);
+
+        // the sprites are only drawn again, if the line offset has changed
+        int stoneDimension = Math.round(lineOffset/2) - 3;
+        if (stoneDimension != stoneSpriteDimension) {
+            drawStoneSprites(stoneDimension);
+        }
+
+        // a position of a different board size is not drawn until the points are calculated again
+        if (points == null || points.length != shownStones.length*2) {
+            return;
+        }
 
-        for (int  i = 0; i < setPoints.length; i=i+3) {
-            // if given stone has an intentional invalid position eg. prisoners
-            if (setPoints[i] == boardSize && setPoints[i+1] == boardSize) {
+        for (int i = 0; i < shownStones.length; i++) {
+            if (shownStones[i] == BoardState.EMPTY) {
                 continue;
             }
 
-            // calculate the index a which the stone is given in the array
-            // array[n] => x; array[n+1] => y; array[n+2] => color;
-            int pointIndex = (setPoints[i]*boardSize + setPoints[i+1])*2;
+            // the points are stored in the same order as the stones, but with x and y
+            int xVal = Math.round(points[i*2]);
+            int yVal = Math.round(points[i*2+1]);
 
-            Drawable stoneImg;
-            int xVal = Math.round(points[pointIndex]);
-            int yVal = Math.round(points[pointIndex+1]);
-
-            int stoneDimension = Math.round(lineOffset/2) - 3;
-            if (setPoints[i+2] == 1) { // if is black stone
-                stoneImg = ContextCompat.getDrawable(this.getContext(), R.drawable.black_stone);
-            }
-            else {
-                stoneImg = ContextCompat.getDrawable(this.getContext(), R.drawable.white_stone);
+            if (isClipped && !clipBounds.intersects(xVal - stoneDimension, yVal - stoneDimension, xVal + stoneDimension, yVal + stoneDimension)) {
+                continue;
             }
-            if (stoneImg != null) {
-                stoneImg.setBounds(xVal - stoneDimension, yVal - stoneDimension, xVal + stoneDimension, yVal + stoneDimension);
-                stoneImg.draw(canvas);
+            Bitmap stone = shownStones[i] == BoardState.BLACK ? blackStone : whiteStone;
+            if (stone != null) {
+                canvas.drawBitmap(stone, xVal - stoneDimension, yVal - stoneDimension, null);
             }
         }
     }
 
-    public Bitmap getBitmap() {
-        return this.getDrawingCache();
+    // ----------------------------------------------------------------------
+    // function drawStoneSprites()
+    //
+    // draws the images of the black and the white stone once in the given
+    // size, so every stone of a frame is a copy of a bitmap instead of
+    // loading and scaling the drawable again
+    // ----------------------------------------------------------------------
+    private void drawStoneSprites(int stoneDimension) {
+        if (blackStone != null) {
+            blackStone.recycle();
+        }
+        if (whiteStone != null) {
+            whiteStone.recycle();
+        }
+        blackStone = drawStoneSprite(R.drawable.black_stone, stoneDimension);
+        whiteStone = drawStoneSprite(R.drawable.white_stone, stoneDimension);
+        stoneSpriteDimension = stoneDimension;
     }
 
-    public void setBoardSize(int size) {
-        this.boardSize = size;
+    private Bitmap drawStoneSprite(int drawableId, int stoneDimension) {
+        Drawable stoneImg = ContextCompat.getDrawable(this.getContext(), drawableId);
+        if (stoneImg == null || stoneDimension <= 0) {
+            return null;
+        }
+        Bitmap sprite = Bitmap.createBitmap(2*stoneDimension, 2*stoneDimension, Bitmap.Config.ARGB_8888);
+        stoneImg.setBounds(0, 0, 2*stoneDimension, 2*stoneDimension);
+        stoneImg.draw(new Canvas(sprite));
+        return sprite;
     }
 
-    public int getBoardSize() {
-        return boardSize;
+    // ----------------------------------------------------------------------
+    // function getIntersection()
+    //
+    // returns the x-index and y-index of the intersection at the given
+    // coordinates of the view or null, if they are not within half the line
+    // offset of an intersection. The nearest intersection is calculated from
+    // the coordinates directly instead of comparing them with all points
+    // ----------------------------------------------------------------------
+    public int[] getIntersection(float x, float y) {
+        if (points == null || lineOffset <= 0) {
+            return null;
+        }
+        int i = Math.round((x - lineOffset/2) / lineOffset);
+        int j = Math.round((y - upperOffset) / lineOffset);
+        if (i < 0 || i >= boardSize || j < 0 || j >= boardSize) {
+            return null;
+        }
+
+        float dx = x - (lineOffset/2 + i * lineOffset);
+        float dy = y - (upperOffset + j * lineOffset);
+        if (dx * dx + dy * dy > (lineOffset/2) * (lineOffset/2)) {
+            return null;
+        }
+        return new int[]{i, j};
     }
 
-    public float[] getPoints() {
-        return points;
+    public void setBoardSize(int size) {
+        if (size != boardSize) {
+            clearBoardLayer();
+            invalidate();
+        }
+        this.boardSize = size;
     }
 
-    public float getLineOffset() {
-        return lineOffset;
+    public int getBoardSize() {
+        return boardSize;
     }
 }
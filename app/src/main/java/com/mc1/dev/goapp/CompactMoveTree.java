@@ -0,0 +1,244 @@
+package com.mc1.dev.goapp;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// ----------------------------------------------------------------------
+// class CompactMoveTree
+//
+// the serialized form of a move tree, see RunningGame.writeObject(). The
+// tree is stored in parallel primitive arrays instead of one object per
+// node, which keeps the serialized game small and avoids the deep
+// recursion of the default serialization. It is not used while a game is
+// played, the running game is still made of MoveNodes, which are built
+// again by toMoveNode() after reading.
+//
+// a node is just an index into the arrays, the tree structure is kept as
+// first child / next sibling links and the nodes are stored in pre order.
+// Comments are rare compared to moves, so they live in a side table of
+// node indices and texts which are both sorted by node index
+// ----------------------------------------------------------------------
+@SuppressWarnings("serial")
+public class CompactMoveTree implements Serializable {
+    public static final int NO_NODE = -1;
+
+    // bits of the flag byte
+    private static final int FLAG_BLACK = 1;
+    private static final int FLAG_PRISONER = 1 << 1;
+    private static final int FLAG_NO_POSITION = 1 << 2;
+    private static final int ACTION_SHIFT = 3;
+
+    private static final GameMetaInformation.actionType[] ACTION_TYPES = GameMetaInformation.actionType.values();
+
+    private int size;
+    // x in the high and y in the low byte
+    private short[] points;
+    private byte[] flags;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private long[] times;
+    private byte[] otPeriods;
+
+    private int commentCount;
+    private int[] commentNodes;
+    private String[] commentTexts;
+
+    public CompactMoveTree(int capacity) {
+        capacity = Math.max(capacity, 1);
+        points = new short[capacity];
+        flags = new byte[capacity];
+        parents = new int[capacity];
+        firstChildren = new int[capacity];
+        nextSiblings = new int[capacity];
+        times = new long[capacity];
+        otPeriods = new byte[capacity];
+        commentNodes = new int[0];
+        commentTexts = new String[0];
+    }
+
+    // ----------------------------------------------------------------------
+    // function of()
+    //
+    // converts the tree below the given root node. The tree is walked with
+    // an explicit stack, so long games do not exhaust the call stack
+    // ----------------------------------------------------------------------
+    public static CompactMoveTree of(MoveNode rootNode) {
+        CompactMoveTree tree = new CompactMoveTree(64);
+        ArrayDeque<MoveNode> nodes = new ArrayDeque<>();
+        ArrayDeque<Integer> parentIndices = new ArrayDeque<>();
+        // the last child added to every node, used to link the next sibling
+        ArrayList<Integer> lastChildren = new ArrayList<>();
+
+        nodes.push(rootNode);
+        parentIndices.push(NO_NODE);
+        while (!nodes.isEmpty()) {
+            MoveNode node = nodes.pop();
+            int parent = parentIndices.pop();
+
+            int index = tree.add(node, parent);
+            lastChildren.add(NO_NODE);
+            if (parent != NO_NODE) {
+                int previous = lastChildren.get(parent);
+                if (previous == NO_NODE) {
+                    tree.firstChildren[parent] = index;
+                } else {
+                    tree.nextSiblings[previous] = index;
+                }
+                lastChildren.set(parent, index);
+            }
+
+            // push in reverse, so the first child is converted next
+            ArrayList<MoveNode> children = node.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                nodes.push(children.get(i));
+                parentIndices.push(index);
+            }
+        }
+        tree.trim();
+        return tree;
+    }
+
+    // ----------------------------------------------------------------------
+    // function toMoveNode()
+    //
+    // creates the MoveNode representation of the tree and returns its root
+    // ----------------------------------------------------------------------
+    public MoveNode toMoveNode() {
+        MoveNode[] nodes = new MoveNode[size];
+        for (int index = 0; index < size; index++) {
+            int parent = parents[index];
+            MoveNode node = new MoveNode(getActionType(index), isBlacksMove(index), getPosition(index),
+                    parent == NO_NODE ? null : nodes[parent], times[index], otPeriods[index], getComment(index));
+            if (isPrisoner(index)) {
+                node.setPrisoner();
+            }
+            // pre order guarantees the parent and the earlier siblings already exist
+            if (parent != NO_NODE) {
+                nodes[parent].addChild(node);
+            }
+            nodes[index] = node;
+        }
+        return size > 0 ? nodes[0] : null;
+    }
+
+    // ----------------------------------------------------------------------
+    // function add()
+    //
+    // appends the data of the given node to the arrays, the links to the
+    // children and siblings are set by the caller
+    // ----------------------------------------------------------------------
+    private int add(MoveNode node, int parent) {
+        if (size == points.length) {
+            grow();
+        }
+        int index = size++;
+
+        int flag = node.getActionType().ordinal() << ACTION_SHIFT;
+        if (node.isBlacksMove()) {
+            flag |= FLAG_BLACK;
+        }
+        if (node.isPrisoner()) {
+            flag |= FLAG_PRISONER;
+        }
+        int[] position = node.getPosition();
+        if (position == null) {
+            flag |= FLAG_NO_POSITION;
+        } else {
+            points[index] = (short) ((position[0] << 8) | (position[1] & 0xff));
+        }
+        flags[index] = (byte) flag;
+        parents[index] = parent;
+        firstChildren[index] = NO_NODE;
+        nextSiblings[index] = NO_NODE;
+        times[index] = node.getTime();
+        otPeriods[index] = node.getOtPeriods();
+
+        if (node.getComment() != null) {
+            if (commentCount == commentNodes.length) {
+                commentNodes = Arrays.copyOf(commentNodes, Math.max(4, commentCount * 2));
+                commentTexts = Arrays.copyOf(commentTexts, commentNodes.length);
+            }
+            // nodes are added in increasing index order, which keeps the table sorted
+            commentNodes[commentCount] = index;
+            commentTexts[commentCount] = node.getComment();
+            commentCount++;
+        }
+        return index;
+    }
+
+    private void grow() {
+        int capacity = points.length * 2;
+        points = Arrays.copyOf(points, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        times = Arrays.copyOf(times, capacity);
+        otPeriods = Arrays.copyOf(otPeriods, capacity);
+    }
+
+    // shrinks the arrays to the number of nodes
+    private void trim() {
+        points = Arrays.copyOf(points, size);
+        flags = Arrays.copyOf(flags, size);
+        parents = Arrays.copyOf(parents, size);
+        firstChildren = Arrays.copyOf(firstChildren, size);
+        nextSiblings = Arrays.copyOf(nextSiblings, size);
+        times = Arrays.copyOf(times, size);
+        otPeriods = Arrays.copyOf(otPeriods, size);
+        commentNodes = Arrays.copyOf(commentNodes, commentCount);
+        commentTexts = Arrays.copyOf(commentTexts, commentCount);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getParent(int index) {
+        return parents[index];
+    }
+
+    public int getFirstChild(int index) {
+        return firstChildren[index];
+    }
+
+    public int getNextSibling(int index) {
+        return nextSiblings[index];
+    }
+
+    public GameMetaInformation.actionType getActionType(int index) {
+        return ACTION_TYPES[(flags[index] & 0xff) >>> ACTION_SHIFT];
+    }
+
+    public boolean isBlacksMove(int index) {
+        return (flags[index] & FLAG_BLACK) != 0;
+    }
+
+    public boolean isPrisoner(int index) {
+        return (flags[index] & FLAG_PRISONER) != 0;
+    }
+
+    // returns a new array, as the move nodes keep a reference to their position
+    public int[] getPosition(int index) {
+        if ((flags[index] & FLAG_NO_POSITION) != 0) {
+            return null;
+        }
+        return new int[]{(points[index] >> 8) & 0xff, points[index] & 0xff};
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public byte getOtPeriods(int index) {
+        return otPeriods[index];
+    }
+
+    public String getComment(int index) {
+        int entry = Arrays.binarySearch(commentNodes, 0, commentCount, index);
+        return entry >= 0 ? commentTexts[entry] : null;
+    }
+}
@@ -0,0 +1,152 @@
+package com.mc1.dev.goapp;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+// ----------------------------------------------------------------------
+// class GameIndex
+//
+// keeps the header of every sgf file in a directory in a single index
+// file. The index is read at once when the list of games is shown and
+// only the headers of files, which are new or have been changed since
+// the last time, are read again.
+//
+// the methods can be called from several threads at the same time
+// ----------------------------------------------------------------------
+public class GameIndex {
+    private static final String LOG_TAG = GameIndex.class.getSimpleName();
+
+    private final File indexFile;
+    private final HashMap<String, GameIndexEntry> entries;
+    private boolean isChanged = false;
+
+    // ----------------------------------------------------------------------
+    // function GameIndex(File indexFile)
+    //
+    // reads the index from the given file. If the file does not exist or
+    // can not be read, e.g. because it was written by an older version of
+    // the app, the index starts empty and is built again
+    // ----------------------------------------------------------------------
+    @SuppressWarnings("unchecked")
+    public GameIndex(File indexFile) {
+        this.indexFile = indexFile;
+        HashMap<String, GameIndexEntry> read = null;
+
+        if (indexFile.exists()) {
+            ObjectInputStream ois = null;
+            try {
+                ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+                read = (HashMap<String, GameIndexEntry>) ois.readObject();
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                Log.w(LOG_TAG, "Could not read game index, it is built again. " + e.getMessage());
+            } finally {
+                if (ois != null) {
+                    try {
+                        ois.close();
+                    } catch (IOException e) {
+                        Log.e(LOG_TAG, "Could not close game index. " + e.getMessage());
+                    }
+                }
+            }
+        }
+        this.entries = read != null ? read : new HashMap<String, GameIndexEntry>();
+    }
+
+    // returns the entry of the file, if it is present and up to date, otherwise null
+    public synchronized GameIndexEntry get(File file) {
+        GameIndexEntry entry = entries.get(file.getAbsolutePath());
+        return entry != null && entry.isUpToDate(file) ? entry : null;
+    }
+
+    // ----------------------------------------------------------------------
+    // function update(File file)
+    //
+    // returns the entry of the file. The header of the file is only read,
+    // if it is not in the index yet or has been changed. The moves are not
+    // parsed, see ThumbnailCache for the final position. Returns null, if
+    // the file can not be parsed
+    // ----------------------------------------------------------------------
+    public GameIndexEntry update(File file) {
+        GameIndexEntry entry = get(file);
+        if (entry != null) {
+            return entry;
+        }
+
+        // the file is parsed without holding the lock, so several files can be parsed at once
+        InputStream is = null;
+        try {
+            is = new FileInputStream(file);
+            entry = new GameIndexEntry(file, new SGFParser().parseHeader(is));
+        } catch (IOException | RuntimeException e) {
+            // a broken file is left out of the list instead of stopping the whole listing
+            Log.i(LOG_TAG, "Parsing failed. " + e);
+            return null;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Could not close input stream. " + e.getMessage());
+                }
+            }
+        }
+
+        synchronized (this) {
+            entries.put(entry.getPath(), entry);
+            isChanged = true;
+        }
+        return entry;
+    }
+
+    // ----------------------------------------------------------------------
+    // function retain(File[] files)
+    //
+    // removes the entries of all files, which are not contained in the
+    // given ones, e.g. because they have been deleted
+    // ----------------------------------------------------------------------
+    public synchronized void retain(File[] files) {
+        HashSet<String> paths = new HashSet<>();
+        for (File file : files) {
+            paths.add(file.getAbsolutePath());
+        }
+        if (entries.keySet().retainAll(paths)) {
+            isChanged = true;
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function save()
+    //
+    // writes the index to its file, if it has been changed since it was
+    // read
+    // ----------------------------------------------------------------------
+    public synchronized void save() {
+        if (!isChanged) {
+            return;
+        }
+
+        // an index, which was cut off while it was written, would have to be built again
+        AtomicFileWriter atomicFileWriter = new AtomicFileWriter(indexFile);
+        try {
+            ObjectOutputStream oos = new ObjectOutputStream(atomicFileWriter.startStream());
+            oos.writeObject(entries);
+            oos.flush();
+            atomicFileWriter.commit();
+            isChanged = false;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Could not write game index. " + e.getMessage());
+        } finally {
+            atomicFileWriter.abort();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.mc1.dev.goapp;
+
+import java.io.File;
+import java.io.Serializable;
+
+// ----------------------------------------------------------------------
+// class GameIndexEntry
+//
+// the information GameIndex keeps about a single sgf file. Besides the
+// header of the game the size and modification time of the file are
+// stored to find out, whether the entry is still valid
+// ----------------------------------------------------------------------
+@SuppressWarnings("serial")
+public class GameIndexEntry implements Serializable {
+    private final String path;
+    private final long size;
+    private final long lastModified;
+    private final GameMetaInformation gmi;
+
+    public GameIndexEntry(File file, GameMetaInformation gmi) {
+        this.path = file.getAbsolutePath();
+        this.size = file.length();
+        this.lastModified = file.lastModified();
+        this.gmi = gmi;
+    }
+
+    // returns true, if the file has not been changed since the entry was created
+    public boolean isUpToDate(File file) {
+        return file.length() == size && file.lastModified() == lastModified;
+    }
+
+    public File getFile() {
+        return new File(path);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public GameMetaInformation getGameMetaInformation() {
+        return gmi;
+    }
+}
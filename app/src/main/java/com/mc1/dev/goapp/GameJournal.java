@@ -0,0 +1,212 @@
+package com.mc1.dev.goapp;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.InvalidParameterException;
+
+// ----------------------------------------------------------------------
+// class GameJournal
+//
+// stores a game, which is played move by move, e.g. an online game. The
+// game is kept as a sgf file and a journal of the moves played since the
+// sgf file was written. Every move only appends a single line to the
+// journal, so storing a move costs the same no matter how long the game
+// is. From time to time and at the end of the game the journal is
+// compacted, i.e. the sgf file is written again and the journal emptied.
+//
+// the lines of the journal are the json-strings of the move nodes, like
+// they are sent to the server. The journal stays open between moves and
+// every line is synced to the disk before append() returns, the sgf file
+// is replaced atomically, so neither of them is left half written.
+//
+// the first line of the journal stores the number of moves of the sgf
+// file it continues. If the app is stopped after a compacted sgf file
+// was renamed, but before the old journal was deleted, load() skips the
+// moves of the journal, which the sgf file already contains
+//
+// the methods only take the finished content, so they can be called on
+// a background thread while the game itself is changed on the main
+// thread, see OnlineGameSession
+// ----------------------------------------------------------------------
+public class GameJournal {
+    private static final String LOG_TAG = GameJournal.class.getSimpleName();
+
+    // the key of the first line of the journal
+    private static final String SGF_LENGTH = "sgfLength";
+
+    private final File sgfFile;
+    private final File journalFile;
+    private int journalLength = 0;
+    // the number of moves in the main variation of the sgf file
+    private int sgfLength = 0;
+    // the open journal, null until the first move is appended
+    private FileChannel journalChannel;
+
+    public GameJournal(File sgfFile, File journalFile) {
+        this.sgfFile = sgfFile;
+        this.journalFile = journalFile;
+    }
+
+    // ----------------------------------------------------------------------
+    // function start(String sgf, int length)
+    //
+    // starts a new game, the sgf file and journal of a previous one are
+    // replaced
+    // ----------------------------------------------------------------------
+    public void start(String sgf, int length) throws IOException {
+        compact(sgf, length);
+    }
+
+    // ----------------------------------------------------------------------
+    // function append(String move)
+    //
+    // stores the json-string of a move, which needs to be the move played
+    // after the previously stored one
+    // ----------------------------------------------------------------------
+    public void append(String move) throws IOException {
+        if (journalChannel == null) {
+            journalChannel = new FileOutputStream(journalFile, true).getChannel();
+        }
+        String lines = move + '\n';
+        if (journalChannel.size() == 0) {
+            lines = "{\"" + SGF_LENGTH + "\":" + sgfLength + "}\n" + lines;
+        }
+        ByteBuffer line = ByteBuffer.wrap(lines.getBytes("UTF-8"));
+        while (line.hasRemaining()) {
+            journalChannel.write(line);
+        }
+        // only the content needs to be synced, not metadata like the modification time
+        journalChannel.force(false);
+        journalLength++;
+    }
+
+    // ----------------------------------------------------------------------
+    // function compact(String sgf, int length)
+    //
+    // replaces the sgf file with the whole game, whose main variation
+    // contains the given number of moves, and empties the journal
+    // ----------------------------------------------------------------------
+    public void compact(String sgf, int length) throws IOException {
+        File parent = sgfFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Directory could not be created: " + parent.getAbsolutePath());
+        }
+
+        AtomicFileWriter atomicFileWriter = new AtomicFileWriter(sgfFile);
+        try {
+            atomicFileWriter.startWriter().write(sgf);
+            atomicFileWriter.commit();
+        } finally {
+            atomicFileWriter.abort();
+        }
+
+        close();
+
+        // the journal is only removed after the sgf file is complete, so no move gets lost
+        if (journalFile.exists() && !journalFile.delete()) {
+            throw new IOException("Journal could not be deleted: " + journalFile.getAbsolutePath());
+        }
+        journalLength = 0;
+        sgfLength = length;
+    }
+
+    // returns the number of moves in the journal
+    public int getLength() {
+        return journalLength;
+    }
+
+    // ----------------------------------------------------------------------
+    // function load()
+    //
+    // reads the sgf file and appends the moves of the journal to the end
+    // of its main variation. Returns null, if there is no stored game
+    // ----------------------------------------------------------------------
+    public RunningGame load() throws IOException, InvalidParameterException {
+        if (!sgfFile.exists()) {
+            return null;
+        }
+
+        RunningGame game;
+        InputStream is = null;
+        try {
+            is = new FileInputStream(sgfFile);
+            game = new SGFParser().parse(is);
+        } finally {
+            if (is != null) {
+                is.close();
+            }
+        }
+        game.updateMainTreeIndices();
+        sgfLength = game.getMainTreeIndices().size();
+
+        journalLength = 0;
+        // the number of moves at the beginning of the journal, which are already in the sgf file
+        int skip = 0;
+        if (!journalFile.exists()) {
+            return game;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    JSONObject entry = new JSONObject(line);
+                    if (entry.has(SGF_LENGTH)) {
+                        skip = Math.max(0, sgfLength - entry.getInt(SGF_LENGTH));
+                        continue;
+                    }
+                    journalLength++;
+                    if (skip > 0) {
+                        skip--;
+                        continue;
+                    }
+                    MoveNode move = new MoveNode(entry);
+                    game.addIndexToMainTree(game.getCurrentNode().addChild(move));
+                } catch (JSONException e) {
+                    // a line, which was cut off while it was written, is the last one
+                    Log.w(LOG_TAG, "Could not read journal entry. " + e.getMessage());
+                    break;
+                }
+            }
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+        return game;
+    }
+
+    // ----------------------------------------------------------------------
+    // function close()
+    //
+    // closes the journal, the next append() opens it again
+    // ----------------------------------------------------------------------
+    public void close() {
+        if (journalChannel == null) {
+            return;
+        }
+        try {
+            journalChannel.close();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Could not close journal. " + e.getMessage());
+        }
+        journalChannel = null;
+    }
+}
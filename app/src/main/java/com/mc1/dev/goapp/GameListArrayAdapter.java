@@ -15,36 +15,72 @@ import java.util.ArrayList;
 // class GameListArrayAdapter
 // This class provides an implementation of an ArrayAdapter suited for
 // displaying two rows of text and an image in a list view.
+// The rows show the dates and the players of the games in the index,
+// the image the final position of the game.
 // ----------------------------------------------------------------------
-public class GameListArrayAdapter extends ArrayAdapter<String> {
-    private final Context context;
-    private final ArrayList<String> values1stLine;
-    private final ArrayList<String> values2ndLine;
-    private final Bitmap[] images;
-
-    public GameListArrayAdapter(Context context, ArrayList<String> values1stLine, ArrayList<String> values2ndLine, Bitmap[] img) {
-        super(context, R.layout.listview_layout, values1stLine);
-        this.context = context;
-        this.values1stLine = values1stLine;
-        this.values2ndLine = values2ndLine;
-        this.images = img;
+public class GameListArrayAdapter extends ArrayAdapter<GameIndexEntry> {
+    private final LayoutInflater inflater;
+    private final ThumbnailCache thumbnails;
+
+    public GameListArrayAdapter(Context context, ArrayList<GameIndexEntry> entries, ThumbnailCache thumbnails) {
+        super(context, R.layout.listview_layout, entries);
+        this.inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        this.thumbnails = thumbnails;
     }
 
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
-        LayoutInflater inflater = (LayoutInflater) context.
-                getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        // This implementation is potentially very inefficient and needs to be replaced by the
-        // view holder pattern in the future.
-        View rowView = inflater.inflate(R.layout.listview_layout, parent, false);
-        TextView textView = (TextView) rowView.findViewById(R.id.firstLine);
-        TextView textView2 = (TextView) rowView.findViewById(R.id.secondLine);
-        ImageView imageView = (ImageView) rowView.findViewById(R.id.gameImage);
-        textView.setText(values1stLine.get(position));
-        textView2.setText(values2ndLine.get(position));
-
-        imageView.setImageBitmap(images[position]);
+        // rows which have been scrolled out of the list are reused, so the views only need to
+        // be inflated and looked up once
+        View rowView = convertView;
+        final ViewHolder holder;
+        if (rowView == null) {
+            rowView = inflater.inflate(R.layout.listview_layout, parent, false);
+            holder = new ViewHolder();
+            holder.firstLine = (TextView) rowView.findViewById(R.id.firstLine);
+            holder.secondLine = (TextView) rowView.findViewById(R.id.secondLine);
+            holder.image = (ImageView) rowView.findViewById(R.id.gameImage);
+            rowView.setTag(holder);
+        } else {
+            holder = (ViewHolder) rowView.getTag();
+        }
+
+        GameIndexEntry entry = getItem(position);
+        GameMetaInformation gmi = entry.getGameMetaInformation();
+        // the dates on which the game is played are displayed colon separated in the first row
+        StringBuilder dates = new StringBuilder();
+        for (int j = 0; j < gmi.getDates().length; j++) {
+            if (j != 0) {
+                dates.append(" ; ");
+            }
+            dates.append(gmi.getDates()[j]);
+        }
+        holder.firstLine.setText(dates.toString());
+        holder.secondLine.setText(gmi.getBlackName() + " vs. " + gmi.getWhiteName());
+
+        // thumbnails which are not in memory are shown as soon as they are loaded, unless the
+        // row has been reused for another game meanwhile
+        holder.thumbnailKey = ThumbnailCache.getKey(entry);
+        Bitmap thumbnail = thumbnails.getFromMemory(entry);
+        holder.image.setImageBitmap(thumbnail);
+        if (thumbnail == null) {
+            thumbnails.load(entry, new ThumbnailCache.Listener() {
+                @Override
+                public void onThumbnailLoaded(String key, Bitmap thumbnail) {
+                    if (key.equals(holder.thumbnailKey)) {
+                        holder.image.setImageBitmap(thumbnail);
+                    }
+                }
+            });
+        }
 
         return rowView;
     }
-}
\ No newline at end of file
+
+    private static class ViewHolder {
+        TextView firstLine;
+        TextView secondLine;
+        ImageView image;
+        String thumbnailKey;
+    }
+}
@@ -0,0 +1,143 @@
+package com.mc1.dev.goapp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ----------------------------------------------------------------------
+// class GameListLoader
+//
+// loads the index entries of the sgf files in the background. The index
+// is read on a separate thread, files which are up to date in the index
+// are reported at once and all others are parsed on a pool with one
+// thread per processor. Each entry is passed to the listener on the main
+// thread as soon as it is available, so the list fills while the files
+// are parsed
+// ----------------------------------------------------------------------
+public class GameListLoader {
+
+    public interface Listener {
+        // called on the main thread for every file, which could be read
+        void onEntryLoaded(GameIndexEntry entry);
+
+        // called on the main thread after all files have been read
+        void onFinished();
+    }
+
+    private final File indexFile;
+    private final Listener listener;
+    private final Handler mainHandler;
+    private final ExecutorService workers;
+    private volatile boolean isCancelled = false;
+
+    public GameListLoader(File indexFile, Listener listener) {
+        this.indexFile = indexFile;
+        this.listener = listener;
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.workers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+    }
+
+    // ----------------------------------------------------------------------
+    // function load(File[] files)
+    //
+    // starts loading the given files and returns immediately
+    // ----------------------------------------------------------------------
+    public void load(final File[] files) {
+        try {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final GameIndex index = new GameIndex(indexFile);
+                    final AtomicInteger remaining = new AtomicInteger(files.length);
+                    if (files.length == 0) {
+                        finish(index, files);
+                    }
+
+                    for (final File file : files) {
+                        if (isCancelled) {
+                            return;
+                        }
+                        GameIndexEntry entry = index.get(file);
+                        if (entry != null) {
+                            deliver(entry);
+                            if (remaining.decrementAndGet() == 0) {
+                                finish(index, files);
+                            }
+                            continue;
+                        }
+                        try {
+                            workers.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    if (isCancelled) {
+                                        return;
+                                    }
+                                    try {
+                                        GameIndexEntry entry = index.update(file);
+                                        if (entry != null) {
+                                            deliver(entry);
+                                        }
+                                    } finally {
+                                        // the index is also saved, if a file could not be read
+                                        if (remaining.decrementAndGet() == 0) {
+                                            finish(index, files);
+                                        }
+                                    }
+                                }
+                            });
+                        } catch (RejectedExecutionException e) {
+                            // the loader has been cancelled meanwhile
+                            return;
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the loader has already been cancelled
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function cancel()
+    //
+    // stops parsing and drops all results, which have not been delivered
+    // yet. Files which are parsed at the moment are finished, but not
+    // reported anymore. Must be called from the main thread
+    // ----------------------------------------------------------------------
+    public void cancel() {
+        isCancelled = true;
+        workers.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    private void deliver(final GameIndexEntry entry) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!isCancelled) {
+                    listener.onEntryLoaded(entry);
+                }
+            }
+        });
+    }
+
+    // the index is only written once all files are read, deleted files are dropped from it
+    private void finish(GameIndex index, File[] files) {
+        index.retain(files);
+        index.save();
+        workers.shutdown();
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!isCancelled) {
+                    listener.onFinished();
+                }
+            }
+        });
+    }
+}
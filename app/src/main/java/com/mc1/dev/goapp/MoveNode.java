@@ -14,6 +14,11 @@ import java.util.ArrayList;
 // contains the representation of a move placed on the board
 // consists of move data as well as members for defining a tree structure
 // to store multiple branches in one game
+//
+// TODO every node of an open game is still an object with its own child
+// list and position array. Large study files would need less memory, if
+// the nodes were kept in parallel arrays like in CompactMoveTree, which
+// is only used to serialize the tree so far
 // ----------------------------------------------------------------------
 @SuppressWarnings("serial")
 public class MoveNode implements Serializable {
@@ -77,14 +82,17 @@ public class MoveNode implements Serializable {
     }
 
     MoveNode(JSONObject jsonObj) {
+        this.parent = null;
+        this.children = new ArrayList<>();
         try {
             JSONObject pos = new JSONObject(jsonObj.get("position" ).toString());
             this.actionType = GameMetaInformation.actionType.valueOf(jsonObj.get("actionType" ).toString());
             this.isBlacksMove = (boolean) jsonObj.get("isBlacksMove");
             this.position = new int[]{(int) pos.get("x" ), (int) pos.get("y" )};
-            this.comment = (String) jsonObj.get("comment");
-            this.parent = null;
-            this.children = new ArrayList<>();
+            // null values like a missing comment are not contained in the json-string at all
+            this.comment = jsonObj.has("comment") ? (String) jsonObj.get("comment") : null;
+            this.currentTime = jsonObj.optLong("time", GameMetaInformation.INVALID_LONG);
+            this.currentOtPeriods = (byte) jsonObj.optInt("otPeriods", GameMetaInformation.INVALID_BYTE);
         } catch (JSONException je) {
             je.printStackTrace();
         }
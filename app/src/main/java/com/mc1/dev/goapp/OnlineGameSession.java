@@ -0,0 +1,158 @@
+package com.mc1.dev.goapp;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.security.InvalidParameterException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// ----------------------------------------------------------------------
+// class OnlineGameSession
+//
+// keeps the running online game in memory for the whole lifetime of the
+// process, so a new ActivityPlayOnline, e.g. after a notification about
+// the opponent's move or a rotation of the screen, continues with the
+// same RunningGame instead of reading it again. The files of the
+// GameJournal are only read, if the process was started anew.
+//
+// the game is only changed on the main thread. The content to store is
+// taken from it there and written to the files by a single background
+// thread in the order the moves were played
+// ----------------------------------------------------------------------
+public class OnlineGameSession {
+    private static final String LOG_TAG = OnlineGameSession.class.getSimpleName();
+
+    // the number of moves after which the journal is compacted
+    private static final int COMPACT_INTERVAL = 50;
+
+    private static OnlineGameSession ourInstance = new OnlineGameSession();
+
+    public static OnlineGameSession getInstance() {
+        return ourInstance;
+    }
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private GameJournal journal;
+    private RunningGame game;
+    // the number of moves in the journal including the ones still waiting to be written
+    private int journalLength = 0;
+
+    private OnlineGameSession() {
+    }
+
+    // ----------------------------------------------------------------------
+    // function init(File sgfFile, File journalFile)
+    //
+    // sets the files the game is stored in. Needs to be called before any
+    // other method, only the first call has an effect
+    // ----------------------------------------------------------------------
+    public void init(File sgfFile, File journalFile) {
+        if (journal == null) {
+            journal = new GameJournal(sgfFile, journalFile);
+        }
+    }
+
+    public boolean hasGame() {
+        return game != null;
+    }
+
+    // ----------------------------------------------------------------------
+    // function getGame()
+    //
+    // returns the game in memory. Only if there is none, the game is read
+    // from the files. Returns null, if there is no stored game either
+    // ----------------------------------------------------------------------
+    public RunningGame getGame() throws IOException, InvalidParameterException {
+        if (game == null) {
+            game = journal.load();
+            journalLength = journal.getLength();
+        }
+        return game;
+    }
+
+    // ----------------------------------------------------------------------
+    // function start(RunningGame newGame)
+    //
+    // replaces the game in memory and the stored one with a new game
+    // ----------------------------------------------------------------------
+    public void start(RunningGame newGame) {
+        game = newGame;
+        journalLength = 0;
+        final String sgf = toSGF();
+        final int length = game.getMainTreeIndices().size();
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    journal.start(sgf, length);
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Could not store new game. " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    // ----------------------------------------------------------------------
+    // function append()
+    //
+    // stores the current node of the game, which needs to be the move
+    // played after the previously stored one. Every COMPACT_INTERVAL moves
+    // the whole game is written instead
+    // ----------------------------------------------------------------------
+    public void append() {
+        if (journalLength + 1 >= COMPACT_INTERVAL) {
+            compact();
+            return;
+        }
+
+        journalLength++;
+        final String move = game.getCurrentNode().toJSON();
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    journal.append(move);
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Could not store move. " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    // ----------------------------------------------------------------------
+    // function compact()
+    //
+    // writes the whole game to the sgf file and empties the journal, which
+    // is done at the end of the game
+    // ----------------------------------------------------------------------
+    public void compact() {
+        journalLength = 0;
+        final String sgf = toSGF();
+        final int length = game.getMainTreeIndices().size();
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    journal.compact(sgf, length);
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Could not store game. " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    // the sgf file is built in memory, so the game can be changed while it is written
+    private String toSGF() {
+        StringWriter sgf = new StringWriter();
+        try {
+            new SGFParser().write(game, sgf);
+        } catch (IOException e) {
+            // a StringWriter does not throw
+            Log.e(LOG_TAG, "Could not convert game. " + e.getMessage());
+        }
+        return sgf.toString();
+    }
+}
@@ -1,5 +1,8 @@
 package com.mc1.dev.goapp;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 
@@ -13,8 +16,11 @@ import java.util.ArrayList;
 @SuppressWarnings("serial")
 public class RunningGame implements Serializable{
     private GameMetaInformation gmi;
-    private MoveNode rootNode;
-    private ArrayList<Integer> mainTreeIndices;      // contains indices to the current node in use, to get nodes from other branches, alter this array
+    private transient MoveNode rootNode;             // serialized as a CompactMoveTree, see writeObject()
+    private ArrayList<Integer> mainTreeIndices;      // contains indices to the current node in use, only alter it through addIndexToMainTree()
+    private transient MoveNode currentNode;          // the node mainTreeIndices lead to, is cached to avoid descending the tree
+    private transient int currentNodeDepth;          // the size of mainTreeIndices the cached node belongs to
+    private transient BoardState boardState;         // the stones on the board, is built on demand and not serialized
 
 
     public RunningGame(GameMetaInformation gmi)
@@ -28,16 +34,28 @@ public class RunningGame implements Serializable{
     //
     // returns the last added Node from the whole tree. this is the node,
     // to which the next played is attached
+    //
+    // the node is cached and only searched again, if the main tree indices
+    // were changed without addIndexToMainTree()
     // ----------------------------------------------------------------------
     public MoveNode getCurrentNode() {
 
-        MoveNode currentlyDeepest = rootNode;
-
-        for (int i = 0; i < mainTreeIndices.size(); i++) {
-            currentlyDeepest = currentlyDeepest.getChildren().get(mainTreeIndices.get(i));
+        if (currentNode == null || currentNodeDepth != mainTreeIndices.size()) {
+            currentNode = getSpecificNode(mainTreeIndices);
+            currentNodeDepth = mainTreeIndices.size();
         }
 
-        return currentlyDeepest;
+        return currentNode;
+    }
+
+    // ----------------------------------------------------------------------
+    // function getCursor()
+    //
+    // returns a new cursor pointing to the root node, which can be moved
+    // through the tree without descending from the root on every step
+    // ----------------------------------------------------------------------
+    public TreeCursor getCursor() {
+        return new TreeCursor(rootNode);
     }
 
     // ----------------------------------------------------------------------
@@ -124,28 +142,46 @@ public class RunningGame implements Serializable{
         return parentNode.addChild(thisMoveNode);
     }
 
+    // attaches the new move to the node the cursor points to, the cursor itself is not moved
+    public int recordMove(GameMetaInformation.actionType actionType, int[] position, TreeCursor cursor) {
+        MoveNode parentNode = cursor.getNode();
+        MoveNode thisMoveNode = new MoveNode(actionType, !parentNode.isBlacksMove(), position, parentNode);
+        return parentNode.addChild(thisMoveNode);
+    }
+
     // ----------------------------------------------------------------------
     // function addIndexToMainTree()
     //
     // append given index to the main game tree
     // ----------------------------------------------------------------------
     public void addIndexToMainTree(int index) {
+        MoveNode child = getCurrentNode().getChildren().get(index);
         mainTreeIndices.add(index);
+        currentNode = child;
+        currentNodeDepth = mainTreeIndices.size();
     }
 
+    // ----------------------------------------------------------------------
+    // function updateMainTreeIndices()
+    //
+    // sets the main tree-branch to the first variation down to its last move
+    // ----------------------------------------------------------------------
     public void updateMainTreeIndices() {
         MoveNode mn = getRootNode();
         this.mainTreeIndices = new ArrayList<>();
         while (mn.getChildren().size() != 0) {
-            addIndexToMainTree(0);
-            mn = getCurrentNode();
+            mainTreeIndices.add(0);
+            mn = mn.getChildren().get(0);
         }
+        currentNode = mn;
+        currentNodeDepth = mainTreeIndices.size();
     }
 
     // ----------------------------------------------------------------------
     // function takeLastMoveBack()
     //
-    // deletes the last node in the main tree-branch
+    // deletes the last node in the main tree-branch. The stones captured by
+    // this move are put back on the board and no longer counted as prisoners
     //
     // to delete from a different branch of the tree, use deleteRecordedMove() TODO implement
     // ----------------------------------------------------------------------
@@ -154,8 +190,23 @@ public class RunningGame implements Serializable{
         MoveNode lastAddedMove = this.getCurrentNode();
         MoveNode parentNode = lastAddedMove.getParent();
 
+        for (MoveNode captured : getBoardState(lastAddedMove).getLastCaptured()) {
+            if (captured.isPrisoner()) {
+                captured.unsetPrisoner();
+                if (captured.isBlacksMove()) {
+                    gmi.setWhitePrisoners(gmi.getWhitePrisoners() - 1);
+                } else {
+                    gmi.setBlackPrisoners(gmi.getBlackPrisoners() - 1);
+                }
+            }
+        }
+        // the board only reverts the journaled changes of the removed move
+        boardState.moveTo(parentNode);
+
         parentNode.removeChild(lastAddedMove);
         mainTreeIndices.remove(mainTreeIndices.size()-1); // size-1 is the index of the last element in the list
+        currentNode = parentNode;
+        currentNodeDepth = mainTreeIndices.size();
 
     }
 
@@ -169,6 +220,26 @@ public class RunningGame implements Serializable{
         getSpecificNode(indices).setPrisoner();
     }
 
+    // ----------------------------------------------------------------------
+    // function getBoardState()
+    //
+    // returns the stones on the board after the given node. The board is
+    // kept between calls, so following a move that was just played or
+    // recorded only costs the application of this single move and going
+    // back only reverts the journaled changes of the moves in between
+    // ----------------------------------------------------------------------
+    public BoardState getBoardState(MoveNode node) {
+        if (boardState == null || boardState.getBoardSize() != gmi.getBoardSize()) {
+            boardState = new BoardState(gmi.getBoardSize(), rootNode);
+        }
+        boardState.moveTo(node);
+        return boardState;
+    }
+
+    public BoardState getBoardState() {
+        return getBoardState(getCurrentNode());
+    }
+
     public GameMetaInformation getGameMetaInformation() {
         return gmi;
     }
@@ -177,5 +248,22 @@ public class RunningGame implements Serializable{
         return mainTreeIndices;
     }
 
+    // ----------------------------------------------------------------------
+    // function writeObject()
+    //
+    // the move tree is written in its compact form, which avoids one object
+    // per node with all its headers and the deep recursion the default
+    // serialization needs for the parent and children references
+    // ----------------------------------------------------------------------
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(CompactMoveTree.of(rootNode));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        rootNode = ((CompactMoveTree) in.readObject()).toMoveNode();
+    }
+
 
 }
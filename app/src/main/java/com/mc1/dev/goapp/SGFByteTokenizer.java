@@ -0,0 +1,181 @@
+package com.mc1.dev.goapp;
+
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+
+// ----------------------------------------------------------------------
+// class SGFByteTokenizer
+//
+// splits a part of a byte buffer, e.g. one game of a memory mapped
+// collection, into the same tokens as SGFTokenizer. The bytes are not
+// decoded into characters first, only the values of the properties are
+// turned into strings.
+//
+// the values are decoded with the charset given by the CA property,
+// which is usually part of the root node. Values before it and files
+// without it are read as UTF-8, like the files written by this app.
+// Only charsets, in which the characters ( ) ; [ ] \ are single bytes
+// that are never part of another character, can be read this way, see
+// isByteSafe(). Other charsets like Shift_JIS are ignored here, SGFCollection
+// converts such files to UTF-8 before they are read
+// ----------------------------------------------------------------------
+public class SGFByteTokenizer implements SGFTokenSource {
+    private static final String LOG_TAG = SGFByteTokenizer.class.getSimpleName();
+    private static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final int end;
+    private int position;
+    private Charset charset = DEFAULT_CHARSET;
+
+    // the id is kept after a value, because further values may follow
+    private final char[] propertyId = new char[8];
+    private int propertyIdLength;
+    private boolean isPropertyIdComplete;
+    private String propertyIdString;
+    private byte[] value = new byte[256];
+    private int valueLength;
+    private String propertyValue;
+
+    // reads the bytes from start up to, but not including end
+    public SGFByteTokenizer(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.position = start;
+        this.end = end;
+    }
+
+    // ----------------------------------------------------------------------
+    // function next()
+    //
+    // reads the next token and returns its type. Bytes outside of values,
+    // which do not belong to a token, are skipped
+    // ----------------------------------------------------------------------
+    @Override
+    public int next() {
+        while (position < end) {
+            int c = buffer.get(position++);
+            switch (c) {
+                case '(':
+                    return VARIATION_START;
+                case ')':
+                    return VARIATION_END;
+                case ';':
+                    return NODE;
+                case '[':
+                    readValue();
+                    if (propertyIdLength == 0) {
+                        // a value without an id is ignored
+                        continue;
+                    }
+                    if (!isPropertyIdComplete) {
+                        propertyIdString = new String(propertyId, 0, propertyIdLength);
+                        isPropertyIdComplete = true;
+                    }
+                    propertyValue = new String(value, 0, valueLength, charset);
+                    if (propertyIdString.equals("CA")) {
+                        setCharset(propertyValue.trim());
+                    }
+                    return PROPERTY;
+                default:
+                    if (c >= 'A' && c <= 'Z') {
+                        if (isPropertyIdComplete) {
+                            propertyIdLength = 0;
+                            isPropertyIdComplete = false;
+                        }
+                        if (propertyIdLength < propertyId.length) {
+                            propertyId[propertyIdLength++] = (char) c;
+                        }
+                    }
+                    break;
+            }
+        }
+        return END;
+    }
+
+    @Override
+    public String getPropertyId() {
+        return propertyIdString;
+    }
+
+    @Override
+    public String getPropertyValue() {
+        return propertyValue;
+    }
+
+    // ----------------------------------------------------------------------
+    // function readValue()
+    //
+    // copies the bytes up to the closing ']' into value, handling escapes
+    // and linebreaks like SGFTokenizer. The opening '[' has already been
+    // read
+    // ----------------------------------------------------------------------
+    private void readValue() {
+        valueLength = 0;
+        while (position < end) {
+            byte c = buffer.get(position++);
+            if (c == ']') {
+                return;
+            }
+            if (c == '\\') {
+                if (position == end) {
+                    return;
+                }
+                c = buffer.get(position++);
+                if (c == '\n' || c == '\r') {
+                    // soft linebreak, which is removed including the second
+                    // byte of a "\r\n" or "\n\r" pair
+                    skipLinebreakPair(c);
+                    continue;
+                }
+            } else if (c == '\n' || c == '\r') {
+                // every kind of linebreak is stored as a single '\n'
+                skipLinebreakPair(c);
+                c = '\n';
+            }
+            if (valueLength == value.length) {
+                byte[] larger = new byte[value.length * 2];
+                System.arraycopy(value, 0, larger, 0, valueLength);
+                value = larger;
+            }
+            value[valueLength++] = c;
+        }
+    }
+
+    private void skipLinebreakPair(byte first) {
+        if (position < end) {
+            byte c = buffer.get(position);
+            if (c != first && (c == '\n' || c == '\r')) {
+                position++;
+            }
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function isByteSafe(Charset charset)
+    //
+    // returns true, if the bytes of the sgf syntax are never part of
+    // another character in the charset. In Shift_JIS, GBK or Big5 the
+    // second byte of a character may be ']' or '\'
+    // ----------------------------------------------------------------------
+    public static boolean isByteSafe(Charset charset) {
+        String name = charset.name();
+        return name.equals("UTF-8") || name.equals("US-ASCII") || name.startsWith("ISO-8859-");
+    }
+
+    private void setCharset(String name) {
+        try {
+            Charset requested = Charset.forName(name);
+            if (isByteSafe(requested)) {
+                charset = requested;
+            } else {
+                Log.i(LOG_TAG, "Charset " + name + " is not read byte by byte, reading on with " + charset.name());
+            }
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            Log.w(LOG_TAG, "Unknown charset " + name + ", reading on with " + charset.name());
+        }
+    }
+}
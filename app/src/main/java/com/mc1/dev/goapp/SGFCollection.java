@@ -0,0 +1,209 @@
+package com.mc1.dev.goapp;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.security.InvalidParameterException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// ----------------------------------------------------------------------
+// class SGFCollection
+//
+// provides the games of a file containing several game trees, e.g. a
+// collection of professional games, see SGFParser.parseCollection().
+// When the collection is created, the bytes are scanned once to find
+// where each game starts and ends. A game is only parsed, when it is
+// requested, so any game can be read without reading the ones before it.
+//
+// the bytes are read directly, if the CA property of the first game
+// names a charset like UTF-8 or ISO-8859-1. A file in another charset,
+// e.g. Shift_JIS, is converted to UTF-8 in memory first, see
+// SGFByteTokenizer.isByteSafe()
+// ----------------------------------------------------------------------
+public class SGFCollection implements Iterable<RunningGame> {
+    private static final String LOG_TAG = SGFCollection.class.getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    // the offsets of the opening '(' and behind the closing ')' of every game
+    private int[] gameStarts = new int[16];
+    private int[] gameEnds = new int[16];
+    private int noOfGames = 0;
+
+    public SGFCollection(ByteBuffer buffer) {
+        this.buffer = toByteSafe(buffer);
+        findGames();
+    }
+
+    public int size() {
+        return noOfGames;
+    }
+
+    // ----------------------------------------------------------------------
+    // function parse(int index, SGFHandler handler)
+    //
+    // reports the game with the given index to the handler like
+    // SGFParser.parse(input, handler)
+    // ----------------------------------------------------------------------
+    public void parse(int index, SGFHandler handler) throws IOException, InvalidParameterException {
+        if (index < 0 || index >= noOfGames) {
+            throw new IndexOutOfBoundsException("Game " + index + " of " + noOfGames);
+        }
+        new SGFParser().parse(new SGFByteTokenizer(buffer, gameStarts[index], gameEnds[index]), handler);
+    }
+
+    public RunningGame getGame(int index) throws IOException, InvalidParameterException {
+        SGFGameBuilder builder = new SGFGameBuilder();
+        parse(index, builder);
+        return builder.getGame();
+    }
+
+    public GameMetaInformation getHeader(int index) throws IOException, InvalidParameterException {
+        SGFHeaderReader headerReader = new SGFHeaderReader();
+        parse(index, headerReader);
+        return headerReader.getGameMetaInformation();
+    }
+
+    // ----------------------------------------------------------------------
+    // function iterator()
+    //
+    // returns the games one after another. Every call of next() parses the
+    // next game, a game, which can not be read, ends the iteration with an
+    // IllegalStateException
+    // ----------------------------------------------------------------------
+    @Override
+    public Iterator<RunningGame> iterator() {
+        return new Iterator<RunningGame>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < noOfGames;
+            }
+
+            @Override
+            public RunningGame next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    return getGame(index++);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not read game " + (index - 1), e);
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    // ----------------------------------------------------------------------
+    // function toByteSafe(ByteBuffer buffer)
+    //
+    // returns the buffer itself, if its charset can be read byte by byte.
+    // Otherwise the whole file is decoded once and returned as UTF-8,
+    // which needs as much memory as the file itself
+    // ----------------------------------------------------------------------
+    private static ByteBuffer toByteSafe(ByteBuffer buffer) {
+        Charset charset = findCharset(buffer);
+        if (charset == null || SGFByteTokenizer.isByteSafe(charset)) {
+            return buffer;
+        }
+        Log.i(LOG_TAG, "Converting collection from " + charset.name() + " to UTF-8");
+        return UTF_8.encode(charset.decode(buffer.duplicate()));
+    }
+
+    // ----------------------------------------------------------------------
+    // function findCharset(ByteBuffer buffer)
+    //
+    // returns the charset given by the CA property in the root node of the
+    // first game or null, if there is none. The name of the charset is
+    // plain ASCII, so the bytes can be read before the charset is known
+    // ----------------------------------------------------------------------
+    private static Charset findCharset(ByteBuffer buffer) {
+        SGFByteTokenizer tokens = new SGFByteTokenizer(buffer, 0, buffer.limit());
+        int noOfNodes = 0;
+        int token;
+        while ((token = tokens.next()) != SGFTokenSource.END) {
+            if (token == SGFTokenSource.NODE && ++noOfNodes > 1
+                    || token == SGFTokenSource.VARIATION_START && noOfNodes > 0) {
+                // the root node has ended
+                return null;
+            }
+            if (token == SGFTokenSource.PROPERTY && tokens.getPropertyId().equals("CA")) {
+                String name = tokens.getPropertyValue().trim();
+                try {
+                    return Charset.forName(name);
+                } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                    Log.w(LOG_TAG, "Unknown charset " + name);
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    // ----------------------------------------------------------------------
+    // function findGames()
+    //
+    // stores the offsets of the top level game trees. Only the brackets
+    // outside of property values are counted, so values like C[(a)] or
+    // C[\]] do not confuse the search
+    // ----------------------------------------------------------------------
+    private void findGames() {
+        int depth = 0;
+        boolean isInValue = false;
+        int length = buffer.limit();
+
+        for (int i = 0; i < length; i++) {
+            byte c = buffer.get(i);
+            if (isInValue) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == ']') {
+                    isInValue = false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '[':
+                    isInValue = true;
+                    break;
+                case '(':
+                    if (depth++ == 0) {
+                        addGame(i);
+                    }
+                    break;
+                case ')':
+                    if (depth > 0 && --depth == 0) {
+                        gameEnds[noOfGames - 1] = i + 1;
+                    }
+                    break;
+            }
+        }
+    }
+
+    // the end of a game is set to the end of the buffer until its last ')' is found, so a file
+    // cut off in its last game still contains it
+    private void addGame(int start) {
+        if (noOfGames == gameStarts.length) {
+            int[] larger = new int[noOfGames * 2];
+            System.arraycopy(gameStarts, 0, larger, 0, noOfGames);
+            gameStarts = larger;
+            larger = new int[noOfGames * 2];
+            System.arraycopy(gameEnds, 0, larger, 0, noOfGames);
+            gameEnds = larger;
+        }
+        gameStarts[noOfGames] = start;
+        gameEnds[noOfGames] = buffer.limit();
+        noOfGames++;
+    }
+}
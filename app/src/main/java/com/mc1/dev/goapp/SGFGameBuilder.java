@@ -0,0 +1,179 @@
+package com.mc1.dev.goapp;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+// ----------------------------------------------------------------------
+// class SGFGameBuilder
+//
+// builds a RunningGame from the events of SGFParser.parse(input, handler).
+// Only the first game of a file containing several games is built
+// ----------------------------------------------------------------------
+public class SGFGameBuilder implements SGFHandler {
+    private static final String LOG_TAG = SGFGameBuilder.class.getSimpleName();
+
+    /*                  Variations:
+    * A variation main line of play always starts with a '(' character. However the sgf format
+    * is designed in the way, that the actual moves of the variation are stored at the
+    * end of the file. Therefore the main variation continues after a '(' has been encountered
+    * until a ')' is reached. From there the line of play jumps to the position of the last '('.
+    * Therefore a stack has been used as a data structure to represent variations to the main
+    * line of play, as the last element of the stack is always the parent node to return to.
+    */
+    private final Stack<TreeCursor> stack = new Stack<>();
+
+    // used to store the resign move at the very end of the main variation
+    private int sizeOfMainVariation = 0;
+
+    // points to the respective parent of the currently regarded node
+    private TreeCursor cursor;
+
+    private final RunningGame rg;
+    private boolean isFinished = false;
+
+    public SGFGameBuilder() {
+        GameMetaInformation gmi = new GameMetaInformation();
+        // TODO handle handicap
+        gmi.setHandicap(0);
+        // a file without a SZ property contains a game on a 19x19 board
+        gmi.setBoardSize(SGFHeaderReader.DEFAULT_BOARD_SIZE);
+        rg = new RunningGame(gmi);
+        cursor = rg.getCursor();
+    }
+
+    public RunningGame getGame() {
+        return rg;
+    }
+
+    @Override
+    public void onGameStart() {
+    }
+
+    // ----------------------------------------------------------------------
+    // function onGameEnd()
+    //
+    // if the game was won by resignation a MoveNode with the actionType
+    // RESIGN needs to be added to the very end of the tree. Variations,
+    // which are still open, e.g. in a file cut off before its last ')',
+    // are closed, so the game keeps the moves read so far.
+    // ----------------------------------------------------------------------
+    @Override
+    public void onGameEnd() {
+        if (!stack.isEmpty()) {
+            Log.w(LOG_TAG, "Game ended with " + stack.size() + " open variations, the file may be cut off.");
+            // the bottom of the stack is the cursor before the outermost open variation
+            cursor = stack.firstElement();
+            stack.clear();
+        }
+        if (rg.getGameMetaInformation().getResult().matches("[BW]\\+(R)|(Resign)")) {
+            ArrayList<Integer> lastMainNode = new ArrayList<>(Collections.nCopies(sizeOfMainVariation, 0));
+            int invalidPosition[] = {rg.getGameMetaInformation().getBoardSize() + 1, rg.getGameMetaInformation().getBoardSize() + 1};
+            rg.recordMove(GameMetaInformation.actionType.RESIGN, invalidPosition, lastMainNode);
+        }
+        isFinished = true;
+    }
+
+    @Override
+    public void onNodeStart() {
+    }
+
+    @Override
+    public void onVariationStart() {
+        stack.push(new TreeCursor(cursor));
+    }
+
+    @Override
+    public void onVariationEnd() {
+        try {
+            cursor = stack.pop();
+        } catch (EmptyStackException e) {
+            Log.e(LOG_TAG, "Something went wrong in the sgf File. ");
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return isFinished;
+    }
+
+    @Override
+    public void onProperty(String id, String value) {
+        int noOfChildren;
+
+        switch (id) {
+            // keyword representing a black move
+            case "B":
+            // keyword representing a white move
+            case "W":
+                int position[] = new int[2];
+                int boardSize = rg.getGameMetaInformation().getBoardSize();
+                // convert letter describing the position of a stone to the more
+                // intuitive integer, -1 for anything else than a letter
+                int x = value.length() >= 2 ? SGFParser.toCoordinate(value.charAt(0)) : -1;
+                int y = value.length() >= 2 ? SGFParser.toCoordinate(value.charAt(1)) : -1;
+
+                // a move of the form B[] or outside of the board like B[tt] is
+                // considered a pass move
+                if (x >= 0 && x < boardSize && y >= 0 && y < boardSize) {
+                    position[0] = x;
+                    position[1] = y;
+
+                    // recordMove returns the index of the newly inserted MoveNode in
+                    // relation to its parent, which is also the number of children of
+                    // this node
+                    noOfChildren = rg.recordMove(GameMetaInformation.actionType.MOVE, position, cursor);
+                } else {
+                    // the position of a pass move is just outside the board
+                    position[0] = boardSize;
+                    position[1] = boardSize;
+                    noOfChildren = rg.recordMove(GameMetaInformation.actionType.PASS, position, cursor);
+                }
+
+                // new parent node is the newly inserted MoveNode
+                cursor.toChild(noOfChildren);
+
+                // only increment, when the node added is a first child
+                // --> main variation
+                if (noOfChildren == 0) sizeOfMainVariation++;
+                break;
+            // time left of black or white
+            case "BL":
+            case "WL":
+                try {
+                    float t = Float.parseFloat(value);
+                    // convert the time from seconds to milliseconds
+                    // the current node is in this case the defined by the
+                    // cursor, because the BL property is always evaluated after
+                    // the corresponding B property. From this it follows, that the
+                    // current node has already been set as the parent node.
+                    cursor.getNode().setTime(Math.round(t * 1000.0));
+                } catch (NumberFormatException e) {
+                    Log.w(LOG_TAG, "Could not parse time value" + e.getMessage());
+                }
+                break;
+            // number of black or white overtimes left
+            case "OB":
+            case "OW":
+                try {
+                    byte ot = Byte.parseByte(value);
+                    cursor.getNode().setOtPeriods(ot);
+                } catch (NumberFormatException e) {
+                    Log.w(LOG_TAG, "Could not parse over time period value" + e.getMessage());
+                }
+                break;
+            // comment for the current node
+            case "C":
+                cursor.getNode().setComment(value);
+                break;
+            // all other properties describe the game itself
+            default:
+                SGFHeaderReader.readProperty(rg.getGameMetaInformation(), id, value);
+                break;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.mc1.dev.goapp;
+
+// ----------------------------------------------------------------------
+// interface SGFHandler
+//
+// receives the contents of a sgf file from SGFParser.parse(input, handler)
+// while the file is read, so a consumer only has to keep what it needs
+// instead of the whole game tree. The events of a file look like this:
+//
+//      (;GM[1];B[aa](;W[bb])(;W[cc]))
+//
+//      onGameStart, onNodeStart, onProperty(GM, 1), onNodeStart,
+//      onProperty(B, aa), onVariationStart, onNodeStart, onProperty(W, bb),
+//      onVariationEnd, onVariationStart, ..., onVariationEnd, onGameEnd
+//
+// a property with several values is reported once per value
+// ----------------------------------------------------------------------
+public interface SGFHandler {
+    void onGameStart();
+
+    void onGameEnd();
+
+    void onNodeStart();
+
+    void onProperty(String id, String value);
+
+    void onVariationStart();
+
+    void onVariationEnd();
+
+    // the parser stops reading the input as soon as this returns true
+    boolean isFinished();
+}
@@ -0,0 +1,155 @@
+package com.mc1.dev.goapp;
+
+import android.util.Log;
+
+import java.security.InvalidParameterException;
+
+// ----------------------------------------------------------------------
+// class SGFHeaderReader
+//
+// reads only the properties of the root node of a sgf file, which
+// describe the game like the players, the date and the result. Reading
+// stops at the first move, so only the beginning of the file is read
+// no matter how long the game is
+// ----------------------------------------------------------------------
+public class SGFHeaderReader implements SGFHandler {
+    private static final String LOG_TAG = SGFHeaderReader.class.getSimpleName();
+
+    // the board size of a file without a SZ property according to the sgf specification
+    static final int DEFAULT_BOARD_SIZE = 19;
+
+    private final GameMetaInformation gmi;
+    private int noOfNodes = 0;
+    private boolean isFinished = false;
+
+    public SGFHeaderReader() {
+        gmi = new GameMetaInformation();
+        // TODO handle handicap
+        gmi.setHandicap(0);
+        // a file without a SZ property contains a game on a 19x19 board
+        gmi.setBoardSize(DEFAULT_BOARD_SIZE);
+    }
+
+    public GameMetaInformation getGameMetaInformation() {
+        return gmi;
+    }
+
+    @Override
+    public void onGameStart() {
+    }
+
+    @Override
+    public void onGameEnd() {
+        isFinished = true;
+    }
+
+    // the second node is the first move
+    @Override
+    public void onNodeStart() {
+        if (++noOfNodes > 1) {
+            isFinished = true;
+        }
+    }
+
+    @Override
+    public void onProperty(String id, String value) {
+        if (id.equals("B") || id.equals("W")) {
+            isFinished = true;
+        } else {
+            readProperty(gmi, id, value);
+        }
+    }
+
+    @Override
+    public void onVariationStart() {
+        isFinished = true;
+    }
+
+    @Override
+    public void onVariationEnd() {
+    }
+
+    @Override
+    public boolean isFinished() {
+        return isFinished;
+    }
+
+    // ----------------------------------------------------------------------
+    // function readProperty()
+    //
+    // stores the value of a root node property in the given gmi. Unknown
+    // properties are ignored. Throws an InvalidParameterException, if the
+    // file does not contain a game of go
+    // ----------------------------------------------------------------------
+    static void readProperty(GameMetaInformation gmi, String id, String value) throws InvalidParameterException {
+        switch (id) {
+            // the game type contained in this file
+            case "GM":
+                // In the sgf specification a GM value of 1 has been specified for
+                // the game of go. If a different value is found in the file, it
+                // certainly does not contain the desired information.
+                if (!value.equals("1"))
+                    throw new InvalidParameterException("Wrong Game Type!");
+                break;
+            // the board size
+            case "SZ":
+                int boardSize;
+                try {
+                    boardSize = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    // e.g. a rectangular board like SZ[19:13], the default size is kept
+                    Log.w(LOG_TAG, "Could not parse board size value" + e.getMessage());
+                    break;
+                }
+                if (boardSize < 1 || boardSize > BoardState.MAX_BOARD_SIZE) {
+                    throw new InvalidParameterException("Unsupported board size " + boardSize);
+                }
+                gmi.setBoardSize(boardSize);
+                break;
+            // komi
+            case "KM":
+                try {
+                    gmi.setKomi(Float.parseFloat(value));
+                } catch (NumberFormatException e) {
+                    Log.w(LOG_TAG, "Could not parse komi value" + e.getMessage());
+                }
+                break;
+            case "RU":
+                break;
+            // TODO store time settings in the gmi?
+            case "TM":
+                break;
+            case "OT":
+                break;
+            // name of the black player
+            case "PB":
+                gmi.setBlackName(value);
+                break;
+            // name of the white player
+            case "PW":
+                gmi.setWhiteName(value);
+                break;
+            // rank of the black player
+            case "BR":
+                gmi.setBlackRank(value);
+                break;
+            // rank of the white player
+            case "WR":
+                gmi.setWhiteRank(value);
+                break;
+            // date of the game
+            case "DT":
+                try {
+                    String dates[] = GameMetaInformation.convertSgfStringToArray(value);
+                    gmi.setDates(dates);
+                } catch (Exception e) {
+                    Log.w(LOG_TAG, "Could not parse dates: " + e.getMessage());
+                }
+                break;
+            // result for the current game
+            case "RE":
+                gmi.setResult(value);
+                break;
+        }
+    }
+}
@@ -3,18 +3,15 @@ package com.mc1.dev.goapp;
 import android.os.Environment;
 import android.util.Log;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
 import java.security.InvalidParameterException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.EmptyStackException;
-import java.util.Stack;
 
 // ----------------------------------------------------------------------
 // class SGFParser
@@ -35,331 +32,115 @@ public class SGFParser {
     // IOException is thrown.
     // ----------------------------------------------------------------------
     public RunningGame parse(InputStream input) throws IOException, InvalidParameterException {
-        /*                  Variations:
-        * A variation main line of play always starts with a '(' character. However the sgf format
-        * is designed in the way, that the actual moves of the variation are stored at the
-        * end of the file. Therefore the main variation continues after a '(' has been encountered
-        * until a ')' is reached. From there the line of play jumps to the position of the last '('.
-        * Therefore a stack has been used as a data structure to represent variations to the main
-        * line of play, as the last element of the stack is always the parent node to return to.
-        */
-        Stack<ArrayList<Integer>> stack = new Stack<>();
-        int noOfChildren;
-
-        // the variable is used to handle multiline properties.
-        boolean isInsidePropertyVal = false;
-
-        // used to store the resign move at the very end of the main variation
-        int sizeOfMainVariation = 0;
+        SGFGameBuilder builder = new SGFGameBuilder();
+        parse(input, builder);
+        return builder.getGame();
+    }
 
-        // the list of indices characterising the respective parent of the currently regarded node
-        ArrayList<Integer> parentNode = new ArrayList<>();
+    // ----------------------------------------------------------------------
+    // function parseHeader(InputStream input)
+    //
+    // reads only the root node of the input and returns the information
+    // about the game stored there. The moves are not read
+    // ----------------------------------------------------------------------
+    public GameMetaInformation parseHeader(InputStream input) throws IOException, InvalidParameterException {
+        SGFHeaderReader headerReader = new SGFHeaderReader();
+        parse(input, headerReader);
+        return headerReader.getGameMetaInformation();
+    }
 
-        // initialize the BufferedReader with null so that in case of an error it can be checked
+    // ----------------------------------------------------------------------
+    // function parse(InputStream input, SGFHandler handler)
+    //
+    // reads the input in a single pass and reports its games, nodes,
+    // properties and variations to the handler. Nothing is kept by the
+    // parser itself, so the handler decides how much memory is used.
+    // Reading stops at the end of the input or when the handler is finished
+    // ----------------------------------------------------------------------
+    public void parse(InputStream input, SGFHandler handler) throws IOException, InvalidParameterException {
+        // initialize the reader with null so that in case of an error it can be checked
         // whether the reader needs to be closed. See finally block.
-        BufferedReader br = null;
-
-        GameMetaInformation gmi = new GameMetaInformation();
-        // TODO handle handicap
-        gmi.setHandicap(0);
-        RunningGame rg = new RunningGame(gmi);
-
-        // get the char representation of a move just outside the size of the board
-        char outOfBounds = (char) ((int) ('a') + rg.getGameMetaInformation().getBoardSize());
+        Reader reader = null;
 
         try {
-            br = new BufferedReader(new InputStreamReader(input));
-            String line;
-
-            // in case of multiline properties both propertyValue and propertyId need to be
-            // accessible outside of the currently read line.
-            StringBuilder propertyValue = new StringBuilder();
-            StringBuilder propertyId = new StringBuilder();
-
-            // the BufferedReader reads the input line by line.
-            while ((line = br.readLine()) != null) {
-                // split the current line in case there are multiple nodes in one line.
-                // Theoretically the whole sgf file could be written into a single line (according
-                // to the specification).
-                String lineSplit[] = line.split(";");
-
-                for (String ls : lineSplit) {
-
-                    // isInsidePropertyVal is accessed and changed within the calling function
-                    android.support.v4.util.ArrayMap<String, String> nodeList = readProperties(ls, propertyValue, propertyId, isInsidePropertyVal);
-
-                    for (android.support.v4.util.ArrayMap.Entry<String, String> entry : nodeList.entrySet()) {
-                        switch (entry.getKey()) {
-                            // keyword representing a black move
-                            case "B":
-                                int position[] = new int[2];
-                                // a move of the form B[] or B['boardSize+1', 'boardSize+1'] is
-                                // considered a pass move
-                                if (entry.getValue().length() != 0 && entry.getValue().charAt(0) != outOfBounds) {
-                                    // convert letter describing the position of a stone to the more
-                                    // intuitive integer
-                                    position[0] = (entry.getValue().charAt(0) - 'a');
-                                    position[1] = (entry.getValue().charAt(1) - 'a');
-
-                                    // recordMove returns the index of the newly inserted MoveNode in
-                                    // relation to its parent, which is also the number of children of
-                                    // this node
-                                    noOfChildren = rg.recordMove(GameMetaInformation.actionType.MOVE, position, parentNode);
-                                } else {
-                                    // the position of a pass move is just outside the board
-                                    position[0] = rg.getGameMetaInformation().getBoardSize();
-                                    position[1] = rg.getGameMetaInformation().getBoardSize();
-
-                                    // recordMove returns the index of the newly inserted MoveNode in
-                                    // relation to its parent, which is also the number of children of
-                                    // this node
-                                    noOfChildren = rg.recordMove(GameMetaInformation.actionType.PASS, position, parentNode);
-                                }
-
-                                // new parent node is the newly inserted MoveNode
-                                parentNode.add(noOfChildren);
-
-                                // only increment, when the node added is a first child
-                                // --> main variation
-                                if (noOfChildren == 0) sizeOfMainVariation++;
-
-                                //Log.i(LOG_TAG, "\tB[" + position[0] + " " + position[1] + "]\t" + parentNode.toString());
-                                break;
-                            // keyword representing a white move
-                            case "W":
-                                position = new int[2];
-                                if (entry.getValue().length() != 0 && entry.getValue().charAt(0) != outOfBounds) {
-                                    position[0] = (entry.getValue().charAt(0) - 'a');
-                                    position[1] = (entry.getValue().charAt(1) - 'a');
-                                    noOfChildren = rg.recordMove(GameMetaInformation.actionType.MOVE, position, parentNode);
-                                } else {
-                                    position[0] = rg.getGameMetaInformation().getBoardSize();
-                                    position[1] = rg.getGameMetaInformation().getBoardSize();
-                                    noOfChildren = rg.recordMove(GameMetaInformation.actionType.PASS, position, parentNode);
-                                }
-
-                                parentNode.add(noOfChildren);
-
-                                if (noOfChildren == 0) sizeOfMainVariation++;
-                                //Log.i(LOG_TAG, "\tW[" + position[0] + " " + position[1] + "]\t" + parentNode.toString());
-                                //Log.i(LOG_TAG, "\t\tWrg[" + rg.getSpecificNode(parentNode).getPosition()[0] + " " + rg.getSpecificNode(parentNode).getPosition()[1] + "]");
-                                break;
-                            // blacks time left
-                            case "BL":
-                                try {
-                                    float t = Float.parseFloat(entry.getValue());
-                                    // convert the time from seconds to milliseconds
-                                    // the current node is in this case the defined by the parentNode
-                                    // index Array, because the BL property is always evaluated after
-                                    // the corresponding B property. From this it follows, that the
-                                    // current node has already been set as the parent node.
-                                    rg.getSpecificNode(parentNode).setTime((long) (t * 1000.0f));
-                                } catch (NumberFormatException e) {
-                                    Log.w(LOG_TAG, "Could not parse time value" + e.getMessage());
-                                }
-                                //Log.i(LOG_TAG, "\t TimeLeft(b): " + rg.getSpecificNode(parentNode).getTime());
-                                break;
-                            // whites time left
-                            case "WL":
-                                try {
-                                    float t = Float.parseFloat(entry.getValue());
-                                    rg.getSpecificNode(parentNode).setTime((long) (t * 1000.0f));
-                                } catch (NumberFormatException e) {
-                                    Log.w(LOG_TAG, "Could not parse time value" + e.getMessage());
-                                }
-                                //Log.i(LOG_TAG, "\t TimeLeft(w): " + rg.getSpecificNode(parentNode).getTime());
-                                break;
-                            // number of black overtimes left
-                            case "OB":
-                                try {
-                                    byte ot = Byte.parseByte(entry.getValue());
-                                    rg.getSpecificNode(parentNode).setOtPeriods(ot);
-                                } catch (NumberFormatException e) {
-                                    Log.w(LOG_TAG, "Could not parse over time period value" + e.getMessage());
-                                }
-                                //Log.i(LOG_TAG, "\t OT Periods(b): " + rg.getSpecificNode(parentNode).getOtPeriods());
-                                break;
-                            // number of white overtimes left
-                            case "OW":
-                                try {
-                                    byte ot = Byte.parseByte(entry.getValue());
-                                    rg.getSpecificNode(parentNode).setOtPeriods(ot);
-                                } catch (NumberFormatException e) {
-                                    Log.w(LOG_TAG, "Could not parse over time period value" + e.getMessage());
-                                }
-                                //Log.i(LOG_TAG, "\t OT Periods(w): " + rg.getSpecificNode(parentNode).getOtPeriods());
-                                break;
-                            // the game type contained in this file
-                            case "GM":
-                                // In the sgf specification a GM value of 1 has been specified for
-                                // the game of go. If a different value is found in the file, it
-                                // certainly does not contain the desired information.
-                                if (!entry.getValue().equals("1"))
-                                    throw new InvalidParameterException("Wrong Game Type!");
-                                break;
-                            // the board size
-                            case "SZ":
-                                try {
-                                    rg.getGameMetaInformation().setBoardSize(Integer.parseInt(entry.getValue()));
-                                } catch (NumberFormatException e) {
-                                    Log.w(LOG_TAG, "Could not parse board size value" + e.getMessage());
-                                }
-                                break;
-                            // komi
-                            case "KM":
-                                try {
-                                    rg.getGameMetaInformation().setKomi(Float.parseFloat(entry.getValue()));
-                                } catch (NumberFormatException e) {
-                                    Log.w(LOG_TAG, "Could not parse komi value" + e.getMessage());
-                                }
-                                break;
-                            case "RU":
-                                break;
-                            // TODO store time settings in the gmi?
-                            case "TM":
-                                break;
-                            case "OT":
-                                break;
-                            // name of the black player
-                            case "PB":
-                                rg.getGameMetaInformation().setBlackName(entry.getValue());
-                                break;
-                            // name of the white player
-                            case "PW":
-                                rg.getGameMetaInformation().setWhiteName(entry.getValue());
-                                break;
-                            // rank of the black player
-                            case "BR":
-                                rg.getGameMetaInformation().setBlackRank(entry.getKey());
-                                break;
-                            // rank of the white player
-                            case "WR":
-                                rg.getGameMetaInformation().setWhiteRank(entry.getValue());
-                                break;
-                            // date of the game
-                            case "DT":
-                                try {
-                                    String dates[] = GameMetaInformation.convertSgfStringToArray(entry.getValue());
-                                    rg.getGameMetaInformation().setDates(dates);
-                                    //Log.i(LOG_TAG, "Date: " + rg.getGameMetaInformation().getDates()[0].toString());
-                                } catch (Exception e) {
-                                    Log.w(LOG_TAG, "Could not parse dates: " + e.getMessage());
-                                }
-                                break;
-                            // comment for the current node
-                            case "C":
-                                rg.getSpecificNode(parentNode).setComment(entry.getValue());
-                                //Log.i(LOG_TAG, "C: " + rg.getSpecificNode(parentNode).getComment());
-                                break;
-                            // result for the current game
-                            case "RE":
-                                rg.getGameMetaInformation().setResult(entry.getValue());
-                                //Log.i(LOG_TAG, "RES: " + rg.getGameMetaInformation().getResult());
-                                break;
-                        }
-                    }
-
-                    // the following block handles the branching out of variations
-                    for (int j = 0; j < ls.length(); ++j) {
-                        switch (ls.charAt(j)) {
-                            case '(':
-                                stack.push(new ArrayList<>(parentNode));
-                                //Log.i(LOG_TAG, "Stack Push: " + stack.toString() + "\n");
-                                break;
-                            case ')':
-                                try {
-                                    parentNode = stack.pop();
-                                    //Log.i(LOG_TAG, "Stack Pop: " + stack.toString() + "\n");
-                                } catch (EmptyStackException e) {
-                                    Log.e(LOG_TAG, "Something went wrong in the sgf File. ");
-                                    e.printStackTrace();
-                                }
-                                break;
-                        }
-                    }
-                }
-            }
-            if (BuildConfig.DEBUG && !stack.isEmpty()) {
-                throw new AssertionError();
-            }
+            reader = new InputStreamReader(input);
+            parse(new SGFTokenizer(reader), handler);
         } catch (IOException e) {
             Log.e(LOG_TAG, "Could not open inputStram. " + e.getMessage());
         } finally {
-            if (br != null) {
+            if (reader != null) {
                 try {
-                    br.close();
+                    reader.close();
                 } catch (IOException e) {
-                    Log.e(LOG_TAG, "Could not close buffered Reader. " + e.getMessage());
+                    Log.e(LOG_TAG, "Could not close reader. " + e.getMessage());
                 }
             }
         }
-
-        // if the game was won by resignation a MoveNode with the actionType RESIGN needs to be
-        // added to the very end of the tree.
-        if (rg.getGameMetaInformation().getResult().matches("[BW]\\+(R)|(Resign)")) {
-            ArrayList<Integer> lastMainNode = new ArrayList<>(Collections.nCopies(sizeOfMainVariation, 0));
-            int invalidPosition[] = {rg.getGameMetaInformation().getBoardSize() + 1, rg.getGameMetaInformation().getBoardSize() + 1};
-            rg.recordMove(GameMetaInformation.actionType.RESIGN, invalidPosition, lastMainNode);
-        }
-
-        return rg;
     }
 
     // ----------------------------------------------------------------------
-    // function ArrayMap<String, String> readProperties(String linePart,
-    //      StringBuilder propertyVal, StringBuilder propertyId)
+    // function parse(SGFTokenSource tokens, SGFHandler handler)
     //
-    // reads and separates all properties and their values from the given
-    // string. Writes the results to an ArrayMap.
-    // propertyVal and propertyId are modified in the process.
+    // reports the tokens to the handler, see parse(input, handler)
     // ----------------------------------------------------------------------
-    private android.support.v4.util.ArrayMap<String, String> readProperties(String linePart, StringBuilder propertyVal, StringBuilder propertyId, boolean isInsidePropertyVal) {
-        android.support.v4.util.ArrayMap<String, String> res = new android.support.v4.util.ArrayMap<>();
-
-        // if the passed propertyVal is not empty the reason needs to be a newline character inside
-        // a game comment. Thus preserving the newline character:
-        if (propertyVal.length() != 0) {
-            propertyVal.append('\n');
-        }
-
-        for (int strlen = 0; strlen < linePart.length(); ++strlen) {
-
-            // if one or two capital letters directly followed by a [ are encountered this must be
-            // a property identifier.
-            // everything inside the following pair of [] must be the corresponding property value
-
-            if (Character.isUpperCase(linePart.charAt(strlen)) && !isInsidePropertyVal) {
-                propertyId.append(linePart.charAt(strlen));
-            }
-
-            switch (linePart.charAt(strlen)) {
-                case '[':
-                    // if the parser is already in a pair of [] every following [ needs to be
-                    // conserved in the string.
-                    if (isInsidePropertyVal) propertyVal.append(linePart.charAt(strlen));
-                    isInsidePropertyVal = true;
+    public void parse(SGFTokenSource tokens, SGFHandler handler) throws IOException, InvalidParameterException {
+        // the number of open '(' characters, a depth of 1 is the top level of a game
+        int depth = 0;
+        int token;
+
+        // properties are reported one value at a time, a property with several values is
+        // reported several times.
+        while (!handler.isFinished() && (token = tokens.next()) != SGFTokenSource.END) {
+            switch (token) {
+                case SGFTokenSource.VARIATION_START:
+                    if (depth++ == 0) {
+                        handler.onGameStart();
+                    } else {
+                        handler.onVariationStart();
+                    }
                     break;
-
-                case ']':
-                    // the current property is only supposed to be written to res if the property
-                    // is finished by a ] character not by an escaped (\]) character.
-                    if (strlen - 1 >= 0 && linePart.charAt(strlen - 1) != '\\') {
-                        res.put(propertyId.toString(), propertyVal.toString());
-                        isInsidePropertyVal = false;
-                        // reset both StringBuilder for use with the next property
-                        propertyId.setLength(0);
-                        propertyVal.setLength(0);
+                case SGFTokenSource.VARIATION_END:
+                    if (depth == 0) {
+                        Log.e(LOG_TAG, "Something went wrong in the sgf File. ");
+                    } else if (--depth == 0) {
+                        handler.onGameEnd();
+                    } else {
+                        handler.onVariationEnd();
                     }
                     break;
+                case SGFTokenSource.NODE:
+                    handler.onNodeStart();
+                    break;
+                case SGFTokenSource.PROPERTY:
+                    handler.onProperty(tokens.getPropertyId(), tokens.getPropertyValue());
+                    break;
             }
-            // every character inside the brackets is taken as a property value. Concerning the [
-            // character see above case '[' statement.
-            if (isInsidePropertyVal && linePart.charAt(strlen) != '[') {
-                propertyVal.append(linePart.charAt(strlen));
-            }
         }
+        // a file cut off before its last ')' still ends the game
+        if (depth > 0 && !handler.isFinished()) {
+            handler.onGameEnd();
+        }
+    }
 
-        return res;
+    // ----------------------------------------------------------------------
+    // function parseCollection(File file)
+    //
+    // maps the file into memory and returns its games, which are only
+    // parsed when they are requested. Meant for large files containing
+    // many games, a single game is read with parse(input)
+    // ----------------------------------------------------------------------
+    public SGFCollection parseCollection(File file) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileChannel channel = fis.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + file.getAbsolutePath());
+            }
+            // the mapping stays valid after the channel is closed
+            return new SGFCollection(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            fis.close();
+        }
     }
 
     // ----------------------------------------------------------------------
@@ -405,108 +186,127 @@ public class SGFParser {
         }
         */
 
-        BufferedWriter bw = null;
-
+        // the game is written to a temporary file first, so a crash while writing can not leave
+        // a truncated file behind
+        AtomicFileWriter atomicFileWriter = new AtomicFileWriter(file);
         try {
-            FileWriter fw = new FileWriter(file);
-            bw = new BufferedWriter(fw);
-
-            // the file always starts with an opening bracket and an empty node which represents
-            // the root node.
-            bw.write("(;");
-            // the root node usually contains the meta information about the game.
-            bw.write(rg.getGameMetaInformation().toString());
-
-            MoveNode currentNode = rg.getRootNode();
-
-            String tmp = descendThisChild(currentNode);
-            Log.i(LOG_TAG, tmp);
-            bw.write(tmp);
-
-            bw.write(")");
-
-            bw.close();
+            write(rg, atomicFileWriter.startWriter());
+            atomicFileWriter.commit();
         } catch (IOException e) {
             Log.e(LOG_TAG, "Could not open file to write " + e.getMessage());
             throw new IOException("Could not open selected file to write");
         } finally {
-            if (bw != null) {
-                try {
-                    bw.close();
-                } catch (IOException e) {
-                    Log.e(LOG_TAG, "Could not close buffered writer " + e.getMessage());
-                }
-            }
+            atomicFileWriter.abort();
         }
         return file.getName();
     }
 
     // ----------------------------------------------------------------------
-    // function String descendThisChild(MoveNode input)
+    // function write(RunningGame rg, Writer writer)
     //
-    // recursive function that descends all MoveNodes found as children of
-    // the passed input node
+    // writes the game in the sgf format to the writer. The tree is walked
+    // with a cursor instead of recursion, so the length of a variation is
+    // not limited by the stack and the nodes are written directly without
+    // building intermediate strings
     // ----------------------------------------------------------------------
-    private String descendThisChild(MoveNode input) {
-        String res = "";
-        MoveNode parent = new MoveNode(input);
-        if (parent.getParent() != null) res += getMoveValues(parent);
-        if (parent.getChildren().size() != 1) {
-            for (int children = 0; children < parent.getChildren().size(); children++) {
-                res += "(";
-                res += descendThisChild(parent.getChildren().get(children));
-                res += ")";
+    public void write(RunningGame rg, Writer writer) throws IOException {
+        // the file always starts with an opening bracket and an empty node which represents
+        // the root node.
+        writer.write("(;");
+        // the root node usually contains the meta information about the game.
+        writer.write(rg.getGameMetaInformation().toString());
+
+        TreeCursor cursor = rg.getCursor();
+        while (true) {
+            MoveNode node = cursor.getNode();
+            if (cursor.getDepth() > 0) {
+                writeMoveValues(node, writer);
+            }
+
+            // a node with several children starts a variation for each of them, a single child
+            // just continues the current one
+            if (node.hasChildren()) {
+                if (node.getChildren().size() > 1) {
+                    writer.write('(');
+                }
+                cursor.toChild(0);
+                continue;
+            }
+
+            // the end of a variation has been reached: go up to the next node with a sibling
+            // that has not been written yet and close all variations on the way
+            while (true) {
+                if (cursor.getDepth() == 0) {
+                    writer.write(')');
+                    return;
+                }
+                if (cursor.getNode().getParent().getChildren().size() > 1) {
+                    writer.write(')');
+                    if (cursor.toSibling(1)) {
+                        writer.write('(');
+                        break;
+                    }
+                }
+                cursor.toParent();
             }
-        } else {
-            res += descendThisChild(parent.getChildren().get(0));
         }
-        return res;
     }
 
     // ----------------------------------------------------------------------
-    // function String getMoveValues(MoveNode currentNode)
+    // function toCoordinate(char c)
     //
-    // extracts the values of the corresponding black or white turn into a
-    // String that adheres to the .sgf syntax
+    // converts a letter of a point in the sgf syntax to the index of the
+    // line. 'a' to 'z' are the lines 0 to 25, 'A' to 'Z' the lines 26 to
+    // 51 of large boards. Returns -1 for any other character
     // ----------------------------------------------------------------------
-    private String getMoveValues(MoveNode currentNode) {
-        String coordinate;
-        String res = "";
-
-        if (currentNode.getActionType().equals(GameMetaInformation.actionType.MOVE)) {
-            char xCoordinate = (char) ((int) 'a' + currentNode.getPosition()[0]);
-            char yCoordinate = (char) ((int) 'a' + currentNode.getPosition()[1]);
-            coordinate = Character.toString(xCoordinate) + Character.toString(yCoordinate);
-        } else {
-            // a PASS move is stored as an empty move
-            coordinate = "";
+    static int toCoordinate(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 26;
         }
+        return -1;
+    }
+
+    // the letter of the line with the given index, see toCoordinate()
+    static char toSGFCoordinate(int coordinate) {
+        return (char) (coordinate < 26 ? 'a' + coordinate : 'A' + coordinate - 26);
+    }
 
+    // ----------------------------------------------------------------------
+    // function writeMoveValues(MoveNode currentNode, Writer writer)
+    //
+    // writes the values of the corresponding black or white turn in the
+    // .sgf syntax
+    // ----------------------------------------------------------------------
+    private void writeMoveValues(MoveNode currentNode, Writer writer) throws IOException {
         if (currentNode.getActionType() != GameMetaInformation.actionType.RESIGN) {
-            if (currentNode.isBlacksMove()) {
+            writer.write(currentNode.isBlacksMove() ? ";B[" : ";W[");
+            if (currentNode.getActionType().equals(GameMetaInformation.actionType.MOVE)) {
+                writer.write(toSGFCoordinate(currentNode.getPosition()[0]));
+                writer.write(toSGFCoordinate(currentNode.getPosition()[1]));
+            }
+            // a PASS move is stored as an empty move
+            writer.write(']');
 
-                res += ";B[" + coordinate + "]";
-                if (currentNode.getTime() != GameMetaInformation.INVALID_LONG) {
-                    res += "BL[" + (float) currentNode.getTime() / 1000.0f + "]";
-                }
-                if (currentNode.getOtPeriods() != GameMetaInformation.INVALID_BYTE) {
-                    res += "OB[" + currentNode.getOtPeriods() + "]";
-                }
-            } else {
-                res += ";W[" + coordinate + "]";
-                if (currentNode.getTime() != GameMetaInformation.INVALID_LONG) {
-                    res += "WL[" + (float) currentNode.getTime() / 1000.0f + "]";
-                }
-                if (currentNode.getOtPeriods() != GameMetaInformation.INVALID_BYTE) {
-                    res += "OW[" + currentNode.getOtPeriods() + "]";
-                }
+            if (currentNode.getTime() != GameMetaInformation.INVALID_LONG) {
+                writer.write(currentNode.isBlacksMove() ? "BL[" : "WL[");
+                writer.write(Float.toString((float) currentNode.getTime() / 1000.0f));
+                writer.write(']');
+            }
+            if (currentNode.getOtPeriods() != GameMetaInformation.INVALID_BYTE) {
+                writer.write(currentNode.isBlacksMove() ? "OB[" : "OW[");
+                writer.write(Byte.toString(currentNode.getOtPeriods()));
+                writer.write(']');
             }
             if (currentNode.getComment() != null) {
-                res += "C[" + currentNode.getComment() + "]";
+                writer.write("C[");
+                writer.write(SGFTokenizer.escape(currentNode.getComment()));
+                writer.write(']');
             }
         }
         // for readability purposes each node is terminated by a newline
-        res += "\n";
-        return res;
+        writer.write('\n');
     }
 }
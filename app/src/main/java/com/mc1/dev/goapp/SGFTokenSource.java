@@ -0,0 +1,25 @@
+package com.mc1.dev.goapp;
+
+import java.io.IOException;
+
+// ----------------------------------------------------------------------
+// interface SGFTokenSource
+//
+// the tokens of a sgf file, which SGFParser reports to a SGFHandler.
+// SGFTokenizer reads them from characters, SGFByteTokenizer directly
+// from the bytes of a file
+// ----------------------------------------------------------------------
+public interface SGFTokenSource {
+    int END = 0;
+    int VARIATION_START = 1;
+    int VARIATION_END = 2;
+    int NODE = 3;
+    int PROPERTY = 4;
+
+    // reads the next token and returns its type
+    int next() throws IOException;
+
+    String getPropertyId();
+
+    String getPropertyValue();
+}
@@ -0,0 +1,175 @@
+package com.mc1.dev.goapp;
+
+import java.io.IOException;
+import java.io.Reader;
+
+// ----------------------------------------------------------------------
+// class SGFTokenizer
+//
+// splits a sgf file into its tokens in a single pass over the characters.
+// The tokens are pulled one after another with next():
+//
+//      (       VARIATION_START
+//      )       VARIATION_END
+//      ;       NODE
+//      ID[v]   PROPERTY, getPropertyId() and getPropertyValue() return
+//              the parts. A property with multiple values like AB[aa][bb]
+//              is returned as one PROPERTY token per value with the same id
+//
+// escaped characters inside a value are unescaped and soft linebreaks
+// (a backslash followed by a linebreak) are removed. The characters are
+// read into a fixed buffer, so apart from the resulting strings nothing
+// is allocated while reading
+// ----------------------------------------------------------------------
+public class SGFTokenizer implements SGFTokenSource {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int NO_CHAR = -2;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int bufferLength;
+    private int bufferPosition;
+    // a character that has been read ahead and is returned by the next read()
+    private int pushedBack = NO_CHAR;
+
+    // the id is kept after a value, because further values may follow
+    private final char[] propertyId = new char[8];
+    private int propertyIdLength;
+    private boolean isPropertyIdComplete;
+    private String propertyIdString;
+    private final StringBuilder propertyValue = new StringBuilder();
+
+    public SGFTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    // ----------------------------------------------------------------------
+    // function next()
+    //
+    // reads the next token and returns its type. Characters outside of
+    // values, which do not belong to a token, e.g. whitespace and the lower
+    // case letters of old style property ids, are skipped
+    // ----------------------------------------------------------------------
+    @Override
+    public int next() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            switch (c) {
+                case '(':
+                    return VARIATION_START;
+                case ')':
+                    return VARIATION_END;
+                case ';':
+                    return NODE;
+                case '[':
+                    readValue();
+                    if (propertyIdLength == 0) {
+                        // a value without an id is ignored
+                        continue;
+                    }
+                    if (!isPropertyIdComplete) {
+                        propertyIdString = new String(propertyId, 0, propertyIdLength);
+                        isPropertyIdComplete = true;
+                    }
+                    return PROPERTY;
+                default:
+                    if (c >= 'A' && c <= 'Z') {
+                        if (isPropertyIdComplete) {
+                            propertyIdLength = 0;
+                            isPropertyIdComplete = false;
+                        }
+                        if (propertyIdLength < propertyId.length) {
+                            propertyId[propertyIdLength++] = (char) c;
+                        }
+                    }
+                    break;
+            }
+        }
+        return END;
+    }
+
+    @Override
+    public String getPropertyId() {
+        return propertyIdString;
+    }
+
+    @Override
+    public String getPropertyValue() {
+        return propertyValue.toString();
+    }
+
+    // ----------------------------------------------------------------------
+    // function readValue()
+    //
+    // reads the characters up to the closing ']' into propertyValue. The
+    // opening '[' has already been read
+    // ----------------------------------------------------------------------
+    private void readValue() throws IOException {
+        propertyValue.setLength(0);
+        int c;
+        while ((c = read()) != -1 && c != ']') {
+            if (c == '\\') {
+                c = read();
+                if (c == -1) {
+                    break;
+                }
+                if (c == '\n' || c == '\r') {
+                    // soft linebreak, which is removed including the second
+                    // character of a "\r\n" or "\n\r" pair
+                    skipLinebreakPair(c);
+                    continue;
+                }
+            } else if (c == '\n' || c == '\r') {
+                // every kind of linebreak is stored as a single '\n'
+                skipLinebreakPair(c);
+                c = '\n';
+            }
+            propertyValue.append((char) c);
+        }
+    }
+
+    private void skipLinebreakPair(int first) throws IOException {
+        int c = read();
+        if (c == -1 || c == first || (c != '\n' && c != '\r')) {
+            pushedBack = c;
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != NO_CHAR) {
+            int c = pushedBack;
+            pushedBack = NO_CHAR;
+            return c;
+        }
+        if (bufferPosition == bufferLength) {
+            bufferLength = reader.read(buffer, 0, BUFFER_SIZE);
+            bufferPosition = 0;
+            if (bufferLength <= 0) {
+                bufferLength = 0;
+                return -1;
+            }
+        }
+        return buffer[bufferPosition++];
+    }
+
+    // ----------------------------------------------------------------------
+    // function escape()
+    //
+    // returns the value with the characters escaped, which would end the
+    // value or start an escape sequence when written into a sgf file
+    // ----------------------------------------------------------------------
+    public static String escape(String value) {
+        if (value.indexOf(']') < 0 && value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder res = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ']' || c == '\\') {
+                res.append('\\');
+            }
+            res.append(c);
+        }
+        return res.toString();
+    }
+}
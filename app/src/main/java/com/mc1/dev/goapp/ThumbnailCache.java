@@ -0,0 +1,242 @@
+package com.mc1.dev.goapp;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+
+// ----------------------------------------------------------------------
+// class ThumbnailCache
+//
+// provides the thumbnails of the final positions of the games in the
+// index. A thumbnail is looked up in memory, then on disk and only drawn
+// again, if neither contains it. The key consists of the path and the
+// modification time of the file, so a changed file gets a new thumbnail.
+// The final position is not part of the index, the file is only parsed
+// to find it, if the thumbnail is not on disk.
+//
+// thumbnails, which are not in memory, are loaded in the background and
+// passed to the listener on the main thread
+// ----------------------------------------------------------------------
+public class ThumbnailCache {
+    private static final String LOG_TAG = ThumbnailCache.class.getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    // the version of the thumbnail files, see getFileName()
+    private static final int FILE_VERSION = 2;
+
+    public interface Listener {
+        void onThumbnailLoaded(String key, Bitmap thumbnail);
+    }
+
+    private final File directory;
+    private final int sizePixels;
+    private final LruCache<String, Bitmap> memoryCache;
+    // the keys, which are loaded at the moment, with the listeners waiting for them, so a key
+    // is not loaded twice
+    private final HashMap<String, ArrayList<Listener>> pending = new HashMap<>();
+    private final Handler mainHandler;
+    private final ExecutorService worker;
+
+    public ThumbnailCache(File directory, int sizePixels) {
+        this.directory = directory;
+        this.sizePixels = sizePixels;
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.worker = Executors.newSingleThreadExecutor();
+
+        // an eighth of the available memory is used for thumbnails
+        int maxKilobytes = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        this.memoryCache = new LruCache<String, Bitmap>(maxKilobytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap thumbnail) {
+                return thumbnail.getByteCount() / 1024;
+            }
+        };
+    }
+
+    public static String getKey(GameIndexEntry entry) {
+        return entry.getPath() + ":" + entry.getLastModified();
+    }
+
+    // returns the thumbnail of the entry, if it is in memory, otherwise null
+    public Bitmap getFromMemory(GameIndexEntry entry) {
+        return memoryCache.get(getKey(entry));
+    }
+
+    // ----------------------------------------------------------------------
+    // function load(GameIndexEntry entry, Listener listener)
+    //
+    // reads the thumbnail from disk or draws it in the background. If the
+    // thumbnail is already being loaded, the listener is notified together
+    // with the ones before it. Must be called from the main thread
+    // ----------------------------------------------------------------------
+    public void load(final GameIndexEntry entry, Listener listener) {
+        final String key = getKey(entry);
+        ArrayList<Listener> waiting = pending.get(key);
+        if (waiting != null) {
+            waiting.add(listener);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(listener);
+        pending.put(key, waiting);
+
+        try {
+            worker.execute(new Runnable() {
+                @Override
+                public void run() {
+                    File file = new File(directory, getFileName(entry));
+                    Bitmap thumbnail = BitmapFactory.decodeFile(file.getAbsolutePath());
+                    if (thumbnail == null) {
+                        thumbnail = render(entry);
+                        if (thumbnail != null) {
+                            write(thumbnail, file);
+                        }
+                    }
+
+                    final Bitmap result = thumbnail;
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            ArrayList<Listener> waiting = pending.remove(key);
+                            if (result == null || waiting == null) {
+                                return;
+                            }
+                            memoryCache.put(key, result);
+                            for (Listener listener : waiting) {
+                                listener.onThumbnailLoaded(key, result);
+                            }
+                        }
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the cache has already been closed
+            pending.remove(key);
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function prune(List<GameIndexEntry> entries)
+    //
+    // deletes the thumbnails on disk, which belong to none of the given
+    // entries, e.g. the ones of deleted or changed files. Must be called
+    // from the main thread with all entries of the index
+    // ----------------------------------------------------------------------
+    public void prune(List<GameIndexEntry> entries) {
+        final ArrayList<GameIndexEntry> retained = new ArrayList<>(entries);
+        try {
+            worker.execute(new Runnable() {
+                @Override
+                public void run() {
+                    HashSet<String> names = new HashSet<>();
+                    for (GameIndexEntry entry : retained) {
+                        names.add(getFileName(entry));
+                    }
+                    File[] files = directory.listFiles();
+                    if (files == null) {
+                        return;
+                    }
+                    for (File file : files) {
+                        if (!names.contains(file.getName()) && !file.delete()) {
+                            Log.i(LOG_TAG, "Thumbnail is not deleted: " + file.getAbsolutePath());
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the cache has already been closed
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function close()
+    //
+    // stops loading thumbnails. Must be called from the main thread
+    // ----------------------------------------------------------------------
+    public void close() {
+        worker.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
+        pending.clear();
+    }
+
+    // a second hash of the path is part of the name, so two paths with the same hash code
+    // do not share their thumbnails. The version is increased, whenever thumbnails drawn
+    // before are not valid anymore, the old files are then removed by prune()
+    private String getFileName(GameIndexEntry entry) {
+        CRC32 crc = new CRC32();
+        crc.update(entry.getPath().getBytes(UTF_8));
+        return Integer.toHexString(entry.getPath().hashCode()) + Long.toHexString(crc.getValue())
+                + "_" + entry.getLastModified() + "_" + sizePixels + "_v" + FILE_VERSION + ".png";
+    }
+
+    // ----------------------------------------------------------------------
+    // function render(GameIndexEntry entry)
+    //
+    // parses the whole file and draws the position at the end of the main
+    // variation. Returns null, if the file can not be parsed
+    // ----------------------------------------------------------------------
+    private Bitmap render(GameIndexEntry entry) {
+        InputStream is = null;
+        try {
+            is = new FileInputStream(entry.getFile());
+            RunningGame game = new SGFParser().parse(is);
+            // the parsed game is at its root, the board is taken at the end of the main line
+            game.updateMainTreeIndices();
+            return ThumbnailRenderer.render(game.getBoardState().copyPosition(),
+                    game.getGameMetaInformation().getBoardSize(), sizePixels);
+        } catch (IOException | RuntimeException e) {
+            Log.i(LOG_TAG, "Parsing failed. " + e);
+            return null;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Could not close input stream. " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void write(Bitmap thumbnail, File file) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.i(LOG_TAG, "Directory is not created: " + directory.getAbsolutePath());
+            return;
+        }
+
+        OutputStream os = null;
+        try {
+            os = new BufferedOutputStream(new FileOutputStream(file));
+            thumbnail.compress(Bitmap.CompressFormat.PNG, 100, os);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Could not write thumbnail. " + e.getMessage());
+        } finally {
+            if (os != null) {
+                try {
+                    os.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Could not close thumbnail file. " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.mc1.dev.goapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+// ----------------------------------------------------------------------
+// class ThumbnailRenderer
+//
+// draws a board position directly onto a small bitmap. No view and no
+// drawables are involved, so thumbnails can be created on any thread
+// ----------------------------------------------------------------------
+public class ThumbnailRenderer {
+    private static final int BOARD_COLOR = Color.rgb(220, 179, 92);
+
+    private ThumbnailRenderer() {
+    }
+
+    // ----------------------------------------------------------------------
+    // function render(byte[] position, int boardSize, int sizePixels)
+    //
+    // returns a quadratic bitmap with the given edge length showing the
+    // position, which is given as returned by BoardState.copyPosition()
+    // ----------------------------------------------------------------------
+    public static Bitmap render(byte[] position, int boardSize, int sizePixels) {
+        Bitmap bitmap = Bitmap.createBitmap(sizePixels, sizePixels, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(BOARD_COLOR);
+
+        // the lines are drawn through the middle of the fields, so the outer half
+        // field is left as a border
+        float lineOffset = (float) sizePixels / boardSize;
+        float first = lineOffset / 2;
+        float last = first + (boardSize - 1) * lineOffset;
+
+        Paint linePaint = new Paint();
+        linePaint.setColor(Color.BLACK);
+        linePaint.setStrokeWidth(Math.max(1, sizePixels / 200));
+        for (int i = 0; i < boardSize; i++) {
+            float offset = first + i * lineOffset;
+            canvas.drawLine(offset, first, offset, last, linePaint);
+            canvas.drawLine(first, offset, last, offset, linePaint);
+        }
+
+        Paint blackPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        blackPaint.setColor(Color.BLACK);
+        Paint whitePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        whitePaint.setColor(Color.WHITE);
+        Paint outlinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        outlinePaint.setColor(Color.BLACK);
+        outlinePaint.setStyle(Paint.Style.STROKE);
+
+        float radius = lineOffset * 0.47f;
+        for (int x = 0; x < boardSize; x++) {
+            for (int y = 0; y < boardSize; y++) {
+                byte stone = position[x * boardSize + y];
+                if (stone == BoardState.EMPTY) {
+                    continue;
+                }
+                float cx = first + x * lineOffset;
+                float cy = first + y * lineOffset;
+                if (stone == BoardState.BLACK) {
+                    canvas.drawCircle(cx, cy, radius, blackPaint);
+                } else {
+                    canvas.drawCircle(cx, cy, radius, whitePaint);
+                    canvas.drawCircle(cx, cy, radius, outlinePaint);
+                }
+            }
+        }
+        return bitmap;
+    }
+}
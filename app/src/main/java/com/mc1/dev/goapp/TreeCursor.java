@@ -0,0 +1,92 @@
+package com.mc1.dev.goapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// ----------------------------------------------------------------------
+// class TreeCursor
+//
+// points to a single node of the move tree. Besides the node itself the
+// cursor keeps the tree indices leading to it from the root, so moving to
+// the parent, a child or a sibling never descends the tree from the root
+// ----------------------------------------------------------------------
+public class TreeCursor {
+    private MoveNode node;
+    private final ArrayList<Integer> indices;
+
+    public TreeCursor(MoveNode rootNode) {
+        this.node = rootNode;
+        this.indices = new ArrayList<>();
+    }
+
+    // copy constructor
+    public TreeCursor(TreeCursor other) {
+        this.node = other.node;
+        this.indices = new ArrayList<>(other.indices);
+    }
+
+    // ----------------------------------------------------------------------
+    // function toParent()
+    //
+    // moves the cursor to the parent node. Returns false and stays, if the
+    // cursor is at the root
+    // ----------------------------------------------------------------------
+    public boolean toParent() {
+        if (indices.isEmpty()) {
+            return false;
+        }
+        indices.remove(indices.size() - 1);
+        node = node.getParent();
+        return true;
+    }
+
+    // ----------------------------------------------------------------------
+    // function toChild()
+    //
+    // moves the cursor to the child with the given index. Returns false and
+    // stays, if there is no such child
+    // ----------------------------------------------------------------------
+    public boolean toChild(int index) {
+        if (index < 0 || index >= node.getChildren().size()) {
+            return false;
+        }
+        indices.add(index);
+        node = node.getChildren().get(index);
+        return true;
+    }
+
+    // ----------------------------------------------------------------------
+    // function toSibling()
+    //
+    // moves the cursor by the given offset to another child of the same
+    // parent, e.g. 1 for the next and -1 for the previous variation.
+    // Returns false and stays, if there is no such sibling
+    // ----------------------------------------------------------------------
+    public boolean toSibling(int offset) {
+        if (indices.isEmpty()) {
+            return false;
+        }
+        int index = indices.get(indices.size() - 1) + offset;
+        MoveNode parent = node.getParent();
+        if (index < 0 || index >= parent.getChildren().size()) {
+            return false;
+        }
+        indices.set(indices.size() - 1, index);
+        node = parent.getChildren().get(index);
+        return true;
+    }
+
+    public MoveNode getNode() {
+        return node;
+    }
+
+    public int getDepth() {
+        return indices.size();
+    }
+
+    // returns the tree indices from the root to the node, the list can not be altered
+    public List<Integer> getIndices() {
+        return Collections.unmodifiableList(indices);
+    }
+}
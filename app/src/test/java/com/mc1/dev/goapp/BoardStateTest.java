@@ -0,0 +1,365 @@
+package com.mc1.dev.goapp;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// ----------------------------------------------------------------------
+// class BoardStateTest
+//
+// checks the rules as GameController and RunningGame apply them while a
+// game is played: captures, suicide, ko and superko, taking moves back
+// and jumping between nodes of the tree. Random games are compared to a
+// naive board, which floods every chain again after each move
+// ----------------------------------------------------------------------
+public class BoardStateTest {
+    private static final GameController gc = GameController.getInstance();
+
+    @Test
+    public void captureRemovesStoneAndCountsPrisoner() {
+        RunningGame game = newGame(9);
+        play(game, 1, 0);
+        play(game, 0, 0);
+        assertEquals(GameController.failureType.SUCCESS, play(game, 0, 1));
+
+        assertEquals(BoardState.EMPTY, game.getBoardState().getStone(0, 0));
+        assertEquals(1, game.getGameMetaInformation().getBlackPrisoners());
+        assertEquals(1, game.getBoardState().getLastCaptured().size());
+    }
+
+    @Test
+    public void captureRemovesWholeChain() {
+        RunningGame game = newGame(9);
+        // white chain on the edge at (3,0) and (4,0)
+        play(game, 2, 0);
+        play(game, 3, 0);
+        play(game, 3, 1);
+        play(game, 4, 0);
+        play(game, 4, 1);
+        play(game, 8, 8);
+        assertEquals(GameController.failureType.SUCCESS, play(game, 5, 0));
+
+        assertEquals(BoardState.EMPTY, game.getBoardState().getStone(3, 0));
+        assertEquals(BoardState.EMPTY, game.getBoardState().getStone(4, 0));
+        assertEquals(2, game.getGameMetaInformation().getBlackPrisoners());
+    }
+
+    @Test
+    public void suicideIsRejected() {
+        RunningGame game = newGame(9);
+        play(game, 1, 0);
+        play(game, 5, 5);
+        play(game, 0, 1);
+
+        assertEquals(GameController.failureType.SUICIDE, play(game, 0, 0));
+        assertEquals(GameController.failureType.OCCUPIED, play(game, 1, 0));
+    }
+
+    @Test
+    public void moveWithoutLibertiesCapturingIsNoSuicide() {
+        RunningGame game = newGame(9);
+        // the white stone at (0,0) has its last liberty at (0,1), whose
+        // other neighbours are white as well
+        play(game, 1, 0);
+        play(game, 0, 0);
+        play(game, 8, 8);
+        play(game, 1, 1);
+        play(game, 8, 7);
+        play(game, 0, 2);
+
+        assertEquals(GameController.failureType.SUCCESS, play(game, 0, 1));
+        assertEquals(BoardState.EMPTY, game.getBoardState().getStone(0, 0));
+    }
+
+    @Test
+    public void simpleKoIsRejectedUntilAnotherMoveWasPlayed() {
+        RunningGame game = newGame(9);
+        playKoShape(game);
+        // black takes the ko
+        assertEquals(GameController.failureType.SUCCESS, play(game, 2, 1));
+        assertEquals(BoardState.EMPTY, game.getBoardState().getStone(1, 1));
+
+        assertEquals(GameController.failureType.KO, play(game, 1, 1));
+
+        // after an exchange elsewhere white may take back
+        play(game, 8, 0);
+        play(game, 8, 2);
+        assertEquals(GameController.failureType.SUCCESS, play(game, 1, 1));
+        assertEquals(BoardState.EMPTY, game.getBoardState().getStone(2, 1));
+    }
+
+    @Test
+    public void positionOfTakenBackMoveIsNotRepeated() {
+        RunningGame game = newGame(9);
+        playKoShape(game);
+        play(game, 2, 1);
+        assertEquals(GameController.failureType.KO, play(game, 1, 1));
+
+        // without the capture, the recapture is no repetition anymore
+        game.takeLastMoveBack();
+        assertFalse(game.getBoardState().isRepetition(new int[]{2, 1}, true));
+        assertEquals(GameController.failureType.SUCCESS, play(game, 2, 1));
+    }
+
+    @Test
+    public void takeLastMoveBackRestoresCapturedStones() {
+        RunningGame game = newGame(9);
+        play(game, 1, 0);
+        play(game, 0, 0);
+        long before = game.getBoardState().getHash();
+        play(game, 0, 1);
+
+        game.takeLastMoveBack();
+
+        assertEquals(BoardState.WHITE, game.getBoardState().getStone(0, 0));
+        assertEquals(BoardState.EMPTY, game.getBoardState().getStone(0, 1));
+        assertEquals(0, game.getGameMetaInformation().getBlackPrisoners());
+        assertEquals(before, game.getBoardState().getHash());
+        assertFalse(game.getRootNode().getChildren().get(0).getChildren().get(0).isPrisoner());
+    }
+
+    @Test
+    public void moveToFollowsVariations() {
+        RunningGame game = newGame(9);
+        play(game, 1, 0);
+        play(game, 0, 0);
+        play(game, 0, 1);
+        MoveNode capture = game.getCurrentNode();
+        byte[] afterCapture = game.getBoardState().copyPosition();
+
+        // a variation of black's third move, which does not capture
+        ArrayList<Integer> second = new ArrayList<>(Arrays.asList(0, 0));
+        game.recordMove(GameMetaInformation.actionType.MOVE, new int[]{5, 5}, second);
+        MoveNode variation = game.getCurrentNode().getParent().getChildren().get(1);
+
+        BoardState board = game.getBoardState(variation);
+        assertEquals(BoardState.WHITE, board.getStone(0, 0));
+        assertEquals(BoardState.BLACK, board.getStone(5, 5));
+
+        board = game.getBoardState(game.getRootNode());
+        assertEquals(new Bitboard(9), board.getStones(true).or(board.getStones(false)));
+        assertEquals(0, board.getHash());
+
+        board = game.getBoardState(capture);
+        assertTrue(Arrays.equals(afterCapture, board.copyPosition()));
+        assertEquals(1, board.getPrisoners(true));
+    }
+
+    @Test
+    public void randomGamesMatchNaiveBoard() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            playRandomGame(random, 5 + random.nextInt(5));
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // function playRandomGame(Random random, int size)
+    //
+    // tries random points and sometimes takes the last move back. Every
+    // result of checkAction, the legal moves, the stones and the prisoners
+    // are compared to the naive board
+    // ----------------------------------------------------------------------
+    private void playRandomGame(Random random, int size) {
+        RunningGame game = newGame(size);
+        NaiveBoard naive = new NaiveBoard(size);
+        Deque<NaiveBoard> history = new ArrayDeque<>();
+        HashMap<String, Integer> seen = new HashMap<>();
+        seen.put(naive.key(), 1);
+
+        for (int step = 0; step < size * size * 3; step++) {
+            boolean isBlack = !game.getCurrentNode().isBlacksMove();
+            byte color = isBlack ? BoardState.BLACK : BoardState.WHITE;
+
+            if (!history.isEmpty() && random.nextInt(10) == 0) {
+                String key = naive.key();
+                seen.put(key, seen.get(key) - 1);
+                naive = history.pop();
+                game.takeLastMoveBack();
+            } else {
+                Bitboard legal = game.getBoardState().getLegalMoves(isBlack);
+                for (int x = 0; x < size; x++) {
+                    for (int y = 0; y < size; y++) {
+                        GameController.failureType expected = naive.check(x, y, color, seen);
+                        assertEquals(expected == GameController.failureType.SUCCESS, legal.get(x * size + y));
+                    }
+                }
+
+                int x = random.nextInt(size);
+                int y = random.nextInt(size);
+                GameController.failureType expected = naive.check(x, y, color, seen);
+                assertEquals(expected, play(game, x, y));
+                if (expected == GameController.failureType.SUCCESS) {
+                    history.push(naive);
+                    naive = naive.copy();
+                    naive.captured[color] += naive.play(x, y, color);
+                    String key = naive.key();
+                    seen.put(key, seen.containsKey(key) ? seen.get(key) + 1 : 1);
+                }
+            }
+
+            BoardState board = game.getBoardState();
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    assertEquals(naive.stones[x][y], board.getStone(x, y));
+                }
+            }
+            assertEquals(naive.captured[BoardState.BLACK], game.getGameMetaInformation().getBlackPrisoners());
+            assertEquals(naive.captured[BoardState.WHITE], game.getGameMetaInformation().getWhitePrisoners());
+        }
+    }
+
+    private static RunningGame newGame(int size) {
+        GameMetaInformation gmi = new GameMetaInformation();
+        gmi.setBoardSize(size);
+        gmi.setHandicap(0);
+        return new RunningGame(gmi);
+    }
+
+    // plays a move of the player at turn like ActivityPlay does
+    private static GameController.failureType play(RunningGame game, int x, int y) {
+        int[] position = {x, y};
+        boolean isBlack = !game.getCurrentNode().isBlacksMove();
+        GameController.failureType result = gc.checkAction(GameMetaInformation.actionType.MOVE, game, position, isBlack);
+        if (result != GameController.failureType.SUCCESS) {
+            return result;
+        }
+        game.playMove(GameMetaInformation.actionType.MOVE, position);
+        gc.calcPrisoners(game, game.getCurrentNode().isBlacksMove());
+        gc.calcPrisoners(game, !game.getCurrentNode().isBlacksMove());
+        return result;
+    }
+
+    // ----------------------------------------------------------------------
+    // function playKoShape(RunningGame game)
+    //
+    // builds a ko with black to move, in which black captures the white
+    // stone at (1,1) by playing (2,1)
+    //
+    //    . B W .
+    //    B W . W
+    //    . B W .
+    // ----------------------------------------------------------------------
+    private static void playKoShape(RunningGame game) {
+        int[][] moves = {{1, 0}, {2, 0}, {0, 1}, {1, 1}, {1, 2}, {3, 1}, {8, 8}, {2, 2}};
+        for (int[] move : moves) {
+            assertEquals(GameController.failureType.SUCCESS, play(game, move[0], move[1]));
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // class NaiveBoard
+    //
+    // a board without any bookkeeping, the chains and their liberties are
+    // searched again for every question
+    // ----------------------------------------------------------------------
+    private static class NaiveBoard {
+        final int size;
+        final byte[][] stones;
+        // the prisoners of black and white, indexed by color
+        final int[] captured = new int[3];
+
+        NaiveBoard(int size) {
+            this.size = size;
+            this.stones = new byte[size][size];
+        }
+
+        NaiveBoard copy() {
+            NaiveBoard copy = new NaiveBoard(size);
+            for (int x = 0; x < size; x++) {
+                copy.stones[x] = stones[x].clone();
+            }
+            System.arraycopy(captured, 0, copy.captured, 0, captured.length);
+            return copy;
+        }
+
+        String key() {
+            return Arrays.deepToString(stones);
+        }
+
+        GameController.failureType check(int x, int y, byte color, HashMap<String, Integer> seen) {
+            if (stones[x][y] != BoardState.EMPTY) {
+                return GameController.failureType.OCCUPIED;
+            }
+            NaiveBoard after = copy();
+            after.play(x, y, color);
+            if (after.stones[x][y] == BoardState.EMPTY) {
+                return GameController.failureType.SUICIDE;
+            }
+            Integer count = seen.get(after.key());
+            if (count != null && count > 0) {
+                return GameController.failureType.KO;
+            }
+            return GameController.failureType.SUCCESS;
+        }
+
+        // places the stone and returns the number of captured opponent stones
+        int play(int x, int y, byte color) {
+            stones[x][y] = color;
+            int count = 0;
+            for (int[] neighbour : neighbours(x, y)) {
+                int nx = neighbour[0];
+                int ny = neighbour[1];
+                if (stones[nx][ny] != BoardState.EMPTY && stones[nx][ny] != color && !hasLiberty(nx, ny)) {
+                    count += remove(nx, ny);
+                }
+            }
+            if (!hasLiberty(x, y)) {
+                remove(x, y);
+            }
+            return count;
+        }
+
+        boolean hasLiberty(int x, int y) {
+            byte color = stones[x][y];
+            boolean[][] visited = new boolean[size][size];
+            Deque<int[]> open = new ArrayDeque<>();
+            open.push(new int[]{x, y});
+            visited[x][y] = true;
+            while (!open.isEmpty()) {
+                int[] point = open.pop();
+                for (int[] neighbour : neighbours(point[0], point[1])) {
+                    byte stone = stones[neighbour[0]][neighbour[1]];
+                    if (stone == BoardState.EMPTY) {
+                        return true;
+                    }
+                    if (stone == color && !visited[neighbour[0]][neighbour[1]]) {
+                        visited[neighbour[0]][neighbour[1]] = true;
+                        open.push(neighbour);
+                    }
+                }
+            }
+            return false;
+        }
+
+        int remove(int x, int y) {
+            byte color = stones[x][y];
+            stones[x][y] = BoardState.EMPTY;
+            int count = 1;
+            for (int[] neighbour : neighbours(x, y)) {
+                if (stones[neighbour[0]][neighbour[1]] == color) {
+                    count += remove(neighbour[0], neighbour[1]);
+                }
+            }
+            return count;
+        }
+
+        ArrayList<int[]> neighbours(int x, int y) {
+            ArrayList<int[]> result = new ArrayList<>();
+            if (x > 0) result.add(new int[]{x - 1, y});
+            if (x < size - 1) result.add(new int[]{x + 1, y});
+            if (y > 0) result.add(new int[]{x, y - 1});
+            if (y < size - 1) result.add(new int[]{x, y + 1});
+            return result;
+        }
+    }
+}
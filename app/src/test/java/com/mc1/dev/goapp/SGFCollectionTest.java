@@ -0,0 +1,89 @@
+package com.mc1.dev.goapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+// ----------------------------------------------------------------------
+// class SGFCollectionTest
+//
+// checks the scan for the games of a collection and that each game is
+// read from its own bytes, also with brackets inside of values, a file
+// cut off in its last game and charsets given by the CA property
+// ----------------------------------------------------------------------
+public class SGFCollectionTest {
+
+    @Test
+    public void bracketsInValuesDoNotSplitGames() throws IOException {
+        SGFCollection collection = collection(
+                "(;GM[1]SZ[9]PB[one]C[an escaped \\] ( value];B[aa](;W[bb])(;W[cc]))\n"
+                        + "(;GM[1]SZ[13]PB[two]C[)(];B[dd])");
+
+        assertEquals(2, collection.size());
+        assertEquals("one", collection.getHeader(0).getBlackName());
+        assertEquals("two", collection.getHeader(1).getBlackName());
+        assertEquals(13, collection.getHeader(1).getBoardSize());
+        MoveNode first = collection.getGame(0).getRootNode().getChildren().get(0);
+        assertEquals(2, first.getChildren().size());
+    }
+
+    @Test
+    public void gameCutOffIsKept() throws IOException {
+        SGFCollection collection = collection("(;GM[1]SZ[9];B[aa])(;GM[1]SZ[9]PB[cut];B[bb];W[cc]");
+
+        assertEquals(2, collection.size());
+        assertEquals("cut", collection.getHeader(1).getBlackName());
+        RunningGame game = collection.getGame(1);
+        game.updateMainTreeIndices();
+        assertEquals(2, game.getMainTreeIndices().size());
+    }
+
+    @Test
+    public void gameIsReadLikeSingleFile() throws IOException {
+        String sgf = "(;GM[1]SZ[9]PB[b]PW[w];B[aa]C[line\r\nbreak];W[bb](;B[cc])(;B[dd]))";
+        SGFCollection collection = collection("(;GM[1];B[aa])" + sgf);
+
+        StringWriter fromCollection = new StringWriter();
+        new SGFParser().write(collection.getGame(1), fromCollection);
+        StringWriter fromFile = new StringWriter();
+        new SGFParser().write(new SGFParser().parse(new ByteArrayInputStream(sgf.getBytes("UTF-8"))), fromFile);
+
+        assertEquals(fromFile.toString(), fromCollection.toString());
+        assertEquals("line\nbreak", collection.getGame(1).getRootNode().getChildren().get(0).getComment());
+    }
+
+    @Test
+    public void valuesAreDecodedWithGivenCharset() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write("(;GM[1]CA[ISO-8859-1]PB[J".getBytes("US-ASCII"));
+        bytes.write(0xF6);
+        bytes.write("rg];B[aa])(;GM[1]PB[\u00fcber];B[bb])".getBytes("UTF-8"));
+        SGFCollection collection = new SGFCollection(ByteBuffer.wrap(bytes.toByteArray()));
+
+        assertEquals("J\u00f6rg", collection.getHeader(0).getBlackName());
+        // a game without CA is read as UTF-8
+        assertEquals("\u00fcber", collection.getHeader(1).getBlackName());
+    }
+
+    @Test
+    public void multiByteCharsetIsConverted() throws IOException {
+        // the second byte of U+8868 in Shift_JIS is a backslash
+        String sgf = "(;GM[1]CA[Shift_JIS]SZ[9]PB[\u8868]PW[w];B[aa])(;GM[1]PB[\u8868\u8868];B[bb])";
+        SGFCollection collection = new SGFCollection(ByteBuffer.wrap(sgf.getBytes("Shift_JIS")));
+
+        assertEquals(2, collection.size());
+        assertEquals("\u8868", collection.getHeader(0).getBlackName());
+        assertEquals("w", collection.getHeader(0).getWhiteName());
+        assertEquals("\u8868\u8868", collection.getHeader(1).getBlackName());
+    }
+
+    private static SGFCollection collection(String sgf) throws IOException {
+        return new SGFCollection(ByteBuffer.wrap(sgf.getBytes("UTF-8")));
+    }
+}
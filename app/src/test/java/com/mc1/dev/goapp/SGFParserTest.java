@@ -0,0 +1,147 @@
+package com.mc1.dev.goapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// ----------------------------------------------------------------------
+// class SGFParserTest
+//
+// writes games into the sgf format and reads them back. A game, which
+// has been read, needs to be written exactly like the original one,
+// including its variations and the escaped characters of comments
+// ----------------------------------------------------------------------
+public class SGFParserTest {
+
+    @Test
+    public void commentsWithSpecialCharactersSurviveRoundTrip() throws IOException {
+        RunningGame game = newGame(19);
+        String comment = "a ] in the middle; a \\ backslash\nand (brackets) [ too";
+        game.recordMove(GameMetaInformation.actionType.MOVE, new int[]{3, 3}, new ArrayList<Integer>(), comment);
+        game.updateMainTreeIndices();
+
+        RunningGame read = parse(write(game));
+
+        assertEquals(comment, read.getRootNode().getChildren().get(0).getComment());
+        assertEquals(write(game), write(read));
+    }
+
+    @Test
+    public void escapedValuesAreRead() throws IOException {
+        RunningGame game = parse("(;GM[1]SZ[9];B[aa]C[x \\] y];W[bb]C[back\\\\slash;])");
+
+        MoveNode first = game.getRootNode().getChildren().get(0);
+        assertEquals("x ] y", first.getComment());
+        assertEquals("back\\slash;", first.getChildren().get(0).getComment());
+        assertEquals("x \\] y", SGFTokenizer.escape("x ] y"));
+    }
+
+    @Test
+    public void variationsSurviveRoundTrip() throws IOException {
+        String sgf = write(parse("(;GM[1]SZ[9];B[aa](;W[bb];B[cc](;W[dd])(;W[ee]))(;W[ff]C[second]))"));
+
+        RunningGame read = parse(sgf);
+
+        MoveNode first = read.getRootNode().getChildren().get(0);
+        assertEquals(2, first.getChildren().size());
+        assertEquals(2, first.getChildren().get(0).getChildren().get(0).getChildren().size());
+        assertEquals("second", first.getChildren().get(1).getComment());
+        assertEquals(sgf, write(read));
+    }
+
+    @Test
+    public void randomTreeSurvivesRoundTrip() throws IOException {
+        Random random = new Random(7);
+        RunningGame game = newGame(19);
+        ArrayList<ArrayList<Integer>> nodes = new ArrayList<>();
+        nodes.add(new ArrayList<Integer>());
+
+        for (int i = 0; i < 400; i++) {
+            ArrayList<Integer> parent = nodes.get(random.nextInt(nodes.size()));
+            int[] position = {random.nextInt(19), random.nextInt(19)};
+            String comment = random.nextInt(5) == 0 ? "node " + i + " ]\\;" : null;
+            int index = comment != null
+                    ? game.recordMove(GameMetaInformation.actionType.MOVE, position, parent, comment)
+                    : game.recordMove(GameMetaInformation.actionType.MOVE, position, parent);
+            ArrayList<Integer> child = new ArrayList<>(parent);
+            child.add(index);
+            nodes.add(child);
+        }
+        String sgf = write(game);
+
+        RunningGame read = parse(sgf);
+
+        assertEquals(401, countNodes(read.getRootNode()));
+        assertEquals(sgf, write(read));
+    }
+
+    @Test
+    public void passMovesAreWrittenEmpty() throws IOException {
+        RunningGame game = parse("(;GM[1]SZ[9];B[tt];W[])");
+
+        MoveNode first = game.getRootNode().getChildren().get(0);
+        assertEquals(GameMetaInformation.actionType.PASS, first.getActionType());
+        assertEquals(GameMetaInformation.actionType.PASS, first.getChildren().get(0).getActionType());
+        assertTrue(write(game).contains(";B[]"));
+    }
+
+    @Test
+    public void largeBoardsUseUpperCaseCoordinates() throws IOException {
+        RunningGame game = parse("(;GM[1]SZ[30];B[aA];W[Dz])");
+
+        MoveNode first = game.getRootNode().getChildren().get(0);
+        assertEquals(0, first.getPosition()[0]);
+        assertEquals(26, first.getPosition()[1]);
+        assertEquals(29, first.getChildren().get(0).getPosition()[0]);
+        assertTrue(write(game).contains(";B[aA]"));
+        assertTrue(write(game).contains(";W[Dz]"));
+
+        // an upper case letter is outside of a small board
+        game = parse("(;GM[1]SZ[19];B[Aa])");
+        assertEquals(GameMetaInformation.actionType.PASS, game.getRootNode().getChildren().get(0).getActionType());
+    }
+
+    @Test
+    public void missingBoardSizeDefaultsTo19() throws IOException {
+        GameMetaInformation gmi = new SGFParser().parseHeader(stream("(;GM[1]PB[black];B[dd])"));
+
+        assertEquals(19, gmi.getBoardSize());
+        assertEquals("black", gmi.getBlackName());
+    }
+
+    private static RunningGame newGame(int size) {
+        GameMetaInformation gmi = new GameMetaInformation();
+        gmi.setBoardSize(size);
+        gmi.setHandicap(0);
+        return new RunningGame(gmi);
+    }
+
+    private static RunningGame parse(String sgf) throws IOException {
+        return new SGFParser().parse(stream(sgf));
+    }
+
+    private static ByteArrayInputStream stream(String sgf) {
+        return new ByteArrayInputStream(sgf.getBytes());
+    }
+
+    private static String write(RunningGame game) throws IOException {
+        StringWriter writer = new StringWriter();
+        new SGFParser().write(game, writer);
+        return writer.toString();
+    }
+
+    private static int countNodes(MoveNode node) {
+        int count = 1;
+        for (MoveNode child : node.getChildren()) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+}